@@ -1,23 +1,43 @@
 package pl.codewise.amazon.client;
 
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.reactivex.*;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.UnicastProcessor;
 import javolution.text.TextBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 import pl.codewise.amazon.client.auth.AWSSignatureCalculatorFactory;
+import pl.codewise.amazon.client.http.ConnectionPoolStats;
 import pl.codewise.amazon.client.http.NettyHttpClient;
 import pl.codewise.amazon.client.http.Request;
+import pl.codewise.amazon.client.http.RequestPriority;
 import pl.codewise.amazon.client.utils.TextBuilders;
 import pl.codewise.amazon.client.utils.UTF8UrlEncoder;
 import pl.codewise.amazon.client.xml.*;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static pl.codewise.amazon.client.RestUtils.appendQueryString;
 
 /**
@@ -33,36 +53,118 @@ public class AsyncS3Client implements AutoCloseable {
     private final NettyHttpClient httpClient;
     @SuppressWarnings("rawtypes")
     private final SingleTransformer retryTransformer;
+    private final RequestHedger requestHedger;
+    private final int listingPrefetch;
+    private final boolean listObjectsV2Enabled;
 
-    private final ListResponseParser listResponseParser;
+    private final GenericResponseParser<ObjectListing> listResponseParser;
+    private final ListObjectsV2ResponseParser listObjectsV2ResponseParser;
+    private final IncrementalListResponseParser incrementalListResponseParser;
     private final ErrorResponseParser errorResponseParser;
+    private final InitiateMultipartUploadResponseParser initiateMultipartUploadResponseParser;
+    private final CompleteMultipartUploadResponseParser completeMultipartUploadResponseParser;
+
+    private final MultipartUploader multipartUploader;
+    private final ParallelDownloader parallelDownloader;
+    private final ParallelLister parallelLister;
+    private final PrefixWalker prefixWalker;
+    private final FileDownloader fileDownloader;
 
     private final AWSSignatureCalculatorFactory signatureCalculatorFactory;
 
+    private final Completable warmedUp;
+
     public AsyncS3Client(
             ClientConfiguration configuration,
             SingleTransformer retryTransformer,
             NettyHttpClient httpClient) {
         this.retryTransformer = retryTransformer;
         this.httpClient = httpClient;
+        this.requestHedger = RequestHedger.create(configuration, httpClient.scheduler());
+        this.listingPrefetch = configuration.getListingPrefetch();
+        this.listObjectsV2Enabled = configuration.isListObjectsV2Enabled();
 
         try {
             XmlPullParserFactory pullParserFactory = XmlPullParserFactory.newInstance();
             pullParserFactory.setNamespaceAware(false);
 
-            listResponseParser = ListResponseParser.newListResponseParser(pullParserFactory, configuration);
+            listResponseParser = configuration.isListResponseScannerEnabled()
+                    ? new ScanningListResponseParser(configuration)
+                    : ListResponseParser.newListResponseParser(pullParserFactory, configuration);
+            listObjectsV2ResponseParser = ListObjectsV2ResponseParser.newListObjectsV2ResponseParser(pullParserFactory, configuration);
+            incrementalListResponseParser = new IncrementalListResponseParser(configuration);
             errorResponseParser = new ErrorResponseParser(pullParserFactory);
+            initiateMultipartUploadResponseParser = new InitiateMultipartUploadResponseParser(pullParserFactory);
+            completeMultipartUploadResponseParser = new CompleteMultipartUploadResponseParser(pullParserFactory, errorResponseParser);
         } catch (XmlPullParserException e) {
             throw new RuntimeException("Unable to initialize xml pull parser factory", e);
         }
 
         signatureCalculatorFactory = new AWSSignatureCalculatorFactory(configuration.getCredentialsProvider());
+        multipartUploader = new MultipartUploader(this, configuration.getMultipartPartSize(), configuration.getMultipartParallelism());
+        parallelDownloader = new ParallelDownloader(this);
+        parallelLister = new ParallelLister(this);
+        prefixWalker = new PrefixWalker(this);
+        fileDownloader = new FileDownloader(this);
+
+        warmedUp = Flowable.fromIterable(configuration.getWarmUpBucketNames())
+                .flatMapCompletable(bucketName -> httpClient.warmUp(bucketName, configuration.getWarmUpConnections()))
+                .cache();
+        warmedUp.subscribe(() -> {
+        }, e -> LOGGER.warn("Unable to warm up connections", e));
     }
 
     public int acquiredConnections() {
         return httpClient.acquiredConnections();
     }
 
+    /**
+     * Current size of the connection pool and how long requests wait for a connection, useful to tune pool bounds.
+     */
+    public ConnectionPoolStats connectionPoolStats() {
+        return httpClient.connectionPoolStats();
+    }
+
+    /**
+     * @return current limit of requests in flight or -1 if adaptive concurrency is disabled
+     */
+    public int concurrencyLimit() {
+        return httpClient.concurrencyLimit();
+    }
+
+    /**
+     * Completes when connections configured to be opened on start-up are ready, immediately if there are none.
+     */
+    public Completable warmedUp() {
+        return warmedUp;
+    }
+
+    /**
+     * Opens given number of connections to the bucket in parallel (capped by pool limits), so that a following burst
+     * of requests does not pay for connection establishment.
+     */
+    public Completable warmUp(String bucketName, int connections) {
+        return httpClient.warmUp(bucketName, connections);
+    }
+
+    /**
+     * Like {@link #warmUp(String, int)}, but additionally sends a cheap request (listing of zero keys) on every
+     * connection, which also verifies credentials and access to the bucket.
+     */
+    public Completable warmUpAndProbe(String bucketName, int connections) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/?");
+        appendQueryString(urlBuilder, new ListObjectsRequest(bucketName, null, null, null, 0));
+
+        Request probe = httpClient.prepareList(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .build();
+
+        return httpClient.<ObjectListing>warmUpAndProbe(bucketName, connections, probe,
+                emitter -> new SubscriptionCompletionHandler<>(emitter, probe, listResponseParser, errorResponseParser));
+    }
+
     public Completable putObject(String bucketName, CharSequence key, byte[] data, ObjectMetadata metadata) {
         return putObject(bucketName, key, Unpooled.wrappedBuffer(data), metadata)
                 .ignoreElement();
@@ -75,6 +177,7 @@ public class AsyncS3Client implements AutoCloseable {
 
         Request request = httpClient.preparePut(urlBuilder.toString())
                 .setBucketName(bucketName)
+                .setKey(key)
                 .setSignatureCalculatorFactory(signatureCalculatorFactory)
                 .setBody(data)
                 .setContentLength((int) metadata.getContentLength())
@@ -85,6 +188,182 @@ public class AsyncS3Client implements AutoCloseable {
         return retrieveResult(request, DiscardBytesParser.getInstance());
     }
 
+    /**
+     * Uploads body emitted by given flowable without materializing it in memory. Next chunk is requested only when
+     * connection is ready to accept more data. Content length declared in metadata is mandatory and must match the
+     * number of bytes emitted. Data flowable is subscribed to on every attempt, so if retries are enabled it must be
+     * able to emit the same content again.
+     */
+    public Single<?> putObject(String bucketName, CharSequence key, Flowable<ByteBuf> data, ObjectMetadata metadata) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/")
+                .append(key);
+
+        Request request = httpClient.preparePut(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setBodyPublisher(data)
+                .setContentLength(metadata.getContentLength())
+                .setMd5(metadata.getContentMD5())
+                .setContentType(metadata.getContentType())
+                .build();
+
+        return retrieveResult(request, DiscardBytesParser.getInstance());
+    }
+
+    /**
+     * Uploads content of the file with a single request. File is transferred by the kernel (sendfile) directly to the
+     * socket and never copied into Java buffers. Content length is taken from the file size. Files larger than 5 GB
+     * must be uploaded with {@link #putObjectMultipart(String, CharSequence, Path, ObjectMetadata)}.
+     */
+    public Single<?> putObject(String bucketName, CharSequence key, Path file, ObjectMetadata metadata) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/")
+                .append(key);
+        String url = urlBuilder.toString();
+
+        return Single.defer(() -> {
+            Request request = httpClient.preparePut(url)
+                    .setBucketName(bucketName)
+                    .setKey(key)
+                    .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                    .setBodyFile(file, 0)
+                    .setContentLength(Files.size(file))
+                    .setMd5(metadata.getContentMD5())
+                    .setContentType(metadata.getContentType())
+                    .build();
+
+            return retrieveResult(request, DiscardBytesParser.getInstance());
+        });
+    }
+
+    /**
+     * Uploads object in parts of configured size, up to configured number of parts at once. Failed parts are retried
+     * individually and upload that could not be completed is aborted. Data buffer is not released, caller keeps its
+     * ownership and may release it when returned single terminates.
+     */
+    public Single<CompleteMultipartUploadResult> putObjectMultipart(String bucketName, CharSequence key, ByteBuf data, ObjectMetadata metadata) {
+        return multipartUploader.upload(bucketName, key.toString(), data, metadata);
+    }
+
+    /**
+     * Uploads object in parts that are transferred directly from the file with sendfile, so its content never lands
+     * in Java buffers.
+     */
+    public Single<CompleteMultipartUploadResult> putObjectMultipart(String bucketName, CharSequence key, Path file, ObjectMetadata metadata) {
+        return multipartUploader.upload(bucketName, key.toString(), file, metadata);
+    }
+
+    /**
+     * Uploads body of unknown length emitted by given flowable. Chunks are regrouped into parts of configured size
+     * without copying and each chunk is released once part containing it is uploaded. Unlike
+     * {@link #putObject(String, CharSequence, Flowable, ObjectMetadata)} data flowable is subscribed to only once.
+     */
+    public Single<CompleteMultipartUploadResult> putObjectMultipart(String bucketName, CharSequence key, Flowable<ByteBuf> data, ObjectMetadata metadata) {
+        return multipartUploader.uploadStream(bucketName, key.toString(), data, metadata);
+    }
+
+    public Single<InitiateMultipartUploadResult> initiateMultipartUpload(String bucketName, CharSequence key, ObjectMetadata metadata) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, key);
+        urlBuilder.append("?uploads");
+
+        Request request = httpClient.prepareInitiateMultipartUpload(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setContentType(metadata.getContentType())
+                .build();
+
+        return retrieveResult(request, initiateMultipartUploadResponseParser);
+    }
+
+    /**
+     * Data buffer is not released, caller keeps its ownership.
+     */
+    public Single<UploadPartResult> uploadPart(String bucketName, CharSequence key, CharSequence uploadId, int partNumber, ByteBuf data) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        appendUploadPartUrl(urlBuilder, key, uploadId, partNumber);
+
+        Request request = httpClient.prepareUploadPart(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setBody(data)
+                .setContentLength(data.readableBytes())
+                .build();
+
+        return retrieveResult(request, new UploadPartResponseParser(partNumber));
+    }
+
+    /**
+     * Uploads length bytes of the file starting at given position as a part. Part is transferred with sendfile.
+     */
+    public Single<UploadPartResult> uploadPart(String bucketName, CharSequence key, CharSequence uploadId, int partNumber, Path file, long position, long length) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        appendUploadPartUrl(urlBuilder, key, uploadId, partNumber);
+
+        Request request = httpClient.prepareUploadPart(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setBodyFile(file, position)
+                .setContentLength(length)
+                .build();
+
+        return retrieveResult(request, new UploadPartResponseParser(partNumber));
+    }
+
+    public Single<CompleteMultipartUploadResult> completeMultipartUpload(String bucketName, CharSequence key, CharSequence uploadId, List<PartETag> partETags) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, key);
+        urlBuilder.append("?uploadId=");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, uploadId);
+        String url = urlBuilder.toString();
+
+        TextBuilder bodyBuilder = TextBuilders.threadLocal();
+        bodyBuilder.append("<CompleteMultipartUpload>");
+        for (PartETag partETag : partETags) {
+            bodyBuilder.append("<Part><PartNumber>")
+                    .append(partETag.getPartNumber())
+                    .append("</PartNumber><ETag>")
+                    .append(partETag.getETag())
+                    .append("</ETag></Part>");
+        }
+        bodyBuilder.append("</CompleteMultipartUpload>");
+        byte[] body = bodyBuilder.toString().getBytes(StandardCharsets.UTF_8);
+
+        Request request = httpClient.prepareCompleteMultipartUpload(url)
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setBody(Unpooled.wrappedBuffer(body))
+                .setContentLength(body.length)
+                .build();
+
+        return retrieveResult(request, completeMultipartUploadResponseParser);
+    }
+
+    public Completable abortMultipartUpload(String bucketName, CharSequence key, CharSequence uploadId) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, key);
+        urlBuilder.append("?uploadId=");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, uploadId);
+
+        Request request = httpClient.prepareAbortMultipartUpload(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(key)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .build();
+
+        return retrieveResult(request, DiscardBytesParser.getInstance())
+                .ignoreElement();
+    }
+
     public void listObjects(String bucketName, SingleEmitter<ObjectListing> subscriber) {
         listObjects(bucketName, null, subscriber);
     }
@@ -94,6 +373,11 @@ public class AsyncS3Client implements AutoCloseable {
     }
 
     private void listObjects(String bucketName, CharSequence prefix, SingleEmitter<? super ObjectListing> subscriber) {
+        listObjects(bucketName, prefix, RequestPriority.NORMAL, 0, subscriber);
+    }
+
+    private void listObjects(String bucketName, CharSequence prefix, RequestPriority priority, long deadlineNanos,
+            SingleEmitter<? super ObjectListing> subscriber) {
         TextBuilder urlBuilder = TextBuilders.threadLocal();
         urlBuilder.append("/?");
         appendQueryString(urlBuilder, prefix, null, null, null);
@@ -101,18 +385,34 @@ public class AsyncS3Client implements AutoCloseable {
         Request request = httpClient.prepareList(urlBuilder.toString())
                 .setBucketName(bucketName)
                 .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setPriority(priority)
+                .setDeadline(deadlineNanos)
                 .build();
 
         retrieveResult(request, listResponseParser, subscriber);
     }
 
     public Single<ObjectListing> listObjects(String bucketName, CharSequence prefix) {
-        return singleWithRetries(
+        return listObjects(bucketName, prefix, RequestPriority.NORMAL, 0);
+    }
+
+    /**
+     * Like {@link #listObjects(String, CharSequence)}, but while waiting for a connection the request goes ahead of
+     * requests of lower priority and fails with TimeoutException if it did not get one within deadlineMillis of this
+     * call, 0 meaning no deadline. The deadline applies to retries as well.
+     */
+    public Single<ObjectListing> listObjects(String bucketName, CharSequence prefix, RequestPriority priority, long deadlineMillis) {
+        long deadlineNanos = deadlineNanos(deadlineMillis);
+        return hedgedSingleWithRetries(
                 subscriber -> listObjects(
                         bucketName,
                         prefix,
+                        priority,
+                        deadlineNanos,
                         subscriber
-                )
+                ),
+                listing -> {
+                }
         );
     }
 
@@ -159,6 +459,11 @@ public class AsyncS3Client implements AutoCloseable {
     }
 
     private void listObjects(ListObjectsRequest listObjectsRequest, SingleEmitter<? super ObjectListing> observer) {
+        listObjects(listObjectsRequest, RequestPriority.NORMAL, 0, observer);
+    }
+
+    private void listObjects(ListObjectsRequest listObjectsRequest, RequestPriority priority, long deadlineNanos,
+            SingleEmitter<? super ObjectListing> observer) {
         TextBuilder urlBuilder = TextBuilders.threadLocal();
         urlBuilder.append("/?");
         appendQueryString(urlBuilder, listObjectsRequest);
@@ -166,30 +471,332 @@ public class AsyncS3Client implements AutoCloseable {
         Request request = httpClient.prepareList(urlBuilder.toString())
                 .setBucketName(listObjectsRequest.getBucketName())
                 .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setPriority(priority)
+                .setDeadline(deadlineNanos)
                 .build();
 
         retrieveResult(request, listResponseParser, observer);
     }
 
     public Single<ObjectListing> listObjects(ListObjectsRequest listObjectsRequest) {
-        return singleWithRetries(
+        return listObjects(listObjectsRequest, RequestPriority.NORMAL, 0);
+    }
+
+    /**
+     * See {@link #listObjects(String, CharSequence, RequestPriority, long)}.
+     */
+    public Single<ObjectListing> listObjects(ListObjectsRequest listObjectsRequest, RequestPriority priority, long deadlineMillis) {
+        long deadlineNanos = deadlineNanos(deadlineMillis);
+        return hedgedSingleWithRetries(
                 subscriber -> listObjects(
                         listObjectsRequest,
-                        subscriber)
+                        priority,
+                        deadlineNanos,
+                        subscriber),
+                listing -> {
+                }
         );
     }
 
+    public Single<ListObjectsV2Result> listObjectsV2(ListObjectsV2Request listObjectsRequest) {
+        return listObjectsV2(listObjectsRequest, RequestPriority.NORMAL, 0);
+    }
+
+    /**
+     * See {@link #listObjects(String, CharSequence, RequestPriority, long)}.
+     */
+    public Single<ListObjectsV2Result> listObjectsV2(ListObjectsV2Request listObjectsRequest, RequestPriority priority, long deadlineMillis) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/?");
+        appendQueryString(urlBuilder, listObjectsRequest);
+
+        Request request = httpClient.prepareList(urlBuilder.toString())
+                .setBucketName(listObjectsRequest.getBucketName())
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setPriority(priority)
+                .setDeadline(deadlineNanos(deadlineMillis))
+                .build();
+
+        return hedgedSingleWithRetries(
+                subscriber -> retrieveResult(request, listObjectsV2ResponseParser, subscriber),
+                listing -> {
+                }
+        );
+    }
+
+    /**
+     * Emits consecutive pages of ListObjectsV2 until it is no longer truncated, see
+     * {@link #listAllPages(ListObjectsRequest)}.
+     */
+    public Flowable<ListObjectsV2Result> listAllPages(ListObjectsV2Request listObjectsRequest) {
+        return ListingPager.pages(
+                listObjectsV2(listObjectsRequest),
+                listing -> listObjectsV2(continuation(listObjectsRequest, listing.getNextContinuationToken())),
+                ListObjectsV2Result::isTruncated,
+                listingPrefetch);
+    }
+
+    private static ListObjectsV2Request continuation(ListObjectsV2Request listObjectsRequest, String continuationToken) {
+        return new ListObjectsV2Request()
+                .withBucketName(listObjectsRequest.getBucketName())
+                .withPrefix(listObjectsRequest.getPrefix())
+                .withDelimiter(listObjectsRequest.getDelimiter())
+                .withMaxKeys(listObjectsRequest.getMaxKeys())
+                .withFetchOwner(listObjectsRequest.isFetchOwner())
+                .withContinuationToken(continuationToken);
+    }
+
+    /**
+     * Lists all objects with given prefix, requesting consecutive pages as they are consumed. See
+     * {@link #listAllPages(ListObjectsRequest)}.
+     */
+    public Flowable<S3ObjectSummary> listAllObjects(String bucketName, CharSequence prefix) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(bucketName);
+        listObjectsRequest.setPrefix(prefix == null ? null : prefix.toString());
+
+        return listAllPages(listObjectsRequest)
+                .concatMapIterable(ObjectListing::getObjectSummaries, 1);
+    }
+
+    /**
+     * Emits consecutive pages of the listing until it is no longer truncated. Next page is requested as soon as the
+     * previous one arrives, up to configured listing prefetch pages ahead of the subscriber, so that a slow subscriber
+     * does not make pages pile up in memory. Pages are listed with ListObjectsV2 if the client is configured to use it.
+     */
+    public Flowable<ObjectListing> listAllPages(ListObjectsRequest listObjectsRequest) {
+        return listAllPages(listObjectsRequest, listing -> listing);
+    }
+
+    /**
+     * Like {@link #listAllPages(ListObjectsRequest)}, but every page is passed through pageMapper before it is emitted,
+     * which may end the listing early by marking the page as not truncated. The mapper must return the page it was
+     * given, as pages of ListObjectsV2 keep the continuation token of the next page.
+     */
+    Flowable<ObjectListing> listAllPages(ListObjectsRequest listObjectsRequest, Function<ObjectListing, ObjectListing> pageMapper) {
+        if (listObjectsV2Enabled) {
+            ListObjectsV2Request firstPageRequest = new ListObjectsV2Request()
+                    .withBucketName(listObjectsRequest.getBucketName())
+                    .withPrefix(listObjectsRequest.getPrefix())
+                    .withDelimiter(listObjectsRequest.getDelimiter())
+                    .withMaxKeys(listObjectsRequest.getMaxKeys())
+                    .withStartAfter(listObjectsRequest.getMarker());
+
+            return ListingPager.pages(
+                    listObjectsV2(firstPageRequest).map(ObjectListingV2::from).map(pageMapper),
+                    listing -> listObjectsV2(continuation(firstPageRequest, ((ObjectListingV2) listing).getNextContinuationToken()))
+                            .map(ObjectListingV2::from)
+                            .map(pageMapper),
+                    ObjectListing::isTruncated,
+                    listingPrefetch);
+        }
+
+        return ListingPager.pages(
+                listObjects(listObjectsRequest).map(pageMapper),
+                listing -> listNextBatchOfObjects(listing).map(pageMapper),
+                ObjectListing::isTruncated,
+                listingPrefetch);
+    }
+
+    /**
+     * Lists objects like {@link #listObjects(ListObjectsRequest)}, but the response is scanned as its chunks arrive
+     * and object summaries are emitted as soon as they are scanned, instead of after the whole page was received.
+     */
+    public Single<ListObjectsStreamResponse> listObjectsStream(ListObjectsRequest listObjectsRequest) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/?");
+        appendQueryString(urlBuilder, listObjectsRequest);
+
+        Request request = httpClient.prepareList(urlBuilder.toString())
+                .setBucketName(listObjectsRequest.getBucketName())
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .build();
+
+        return retrieveStream(request, incrementalListResponseParser);
+    }
+
+    /**
+     * Lists all objects with given prefix like {@link #listAllObjects(String, CharSequence)}, but every page is
+     * streamed with {@link #listObjectsStream(ListObjectsRequest)}. Next page is requested once the previous one was
+     * scanned, as its marker is the last key of the page.
+     */
+    public Flowable<S3ObjectSummary> streamAllObjects(String bucketName, CharSequence prefix) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(bucketName);
+        listObjectsRequest.setPrefix(prefix == null ? null : prefix.toString());
+
+        return Flowable.defer(() -> {
+            FlowableProcessor<ListObjectsRequest> pageRequests = UnicastProcessor.<ListObjectsRequest>create().toSerialized();
+            pageRequests.onNext(listObjectsRequest);
+
+            return pageRequests.concatMap(pageRequest -> listObjectsStream(pageRequest)
+                    .flatMapPublisher(response -> response.getObjectSummaries()
+                            .doOnComplete(() -> {
+                                ObjectListing listing = response.getListing();
+                                if (listing.isTruncated()) {
+                                    pageRequests.onNext(new ListObjectsRequest(
+                                            bucketName,
+                                            pageRequest.getPrefix(),
+                                            listing.getNextMarker(),
+                                            null,
+                                            null));
+                                } else {
+                                    pageRequests.onComplete();
+                                }
+                            })), 1);
+        });
+    }
+
+    /**
+     * Lists all objects with given prefix as several listings over separate ranges of keys, up to parallelism of them
+     * at once. Ranges are split at keys sampled from the first page, see {@link ParallelLister}. Sorted listing emits
+     * objects in key order, unsorted one emits them as soon as any range returns them.
+     */
+    public Flowable<S3ObjectSummary> listAllObjectsInParallel(String bucketName, CharSequence prefix, int parallelism, boolean sorted) {
+        return parallelLister.list(bucketName, prefix == null ? null : prefix.toString(), parallelism, sorted);
+    }
+
+    /**
+     * Like {@link #listAllObjectsInParallel(String, CharSequence, int, boolean)}, but ranges are split at given keys.
+     * Each split point ends one range and the next range starts after it, so keys known to be spread evenly over the
+     * prefix, e.g. boundaries of hashed key prefixes, give ranges of similar size.
+     */
+    public Flowable<S3ObjectSummary> listAllObjectsInParallel(String bucketName, CharSequence prefix, List<String> splitPoints,
+            int parallelism, boolean sorted) {
+        return parallelLister.list(bucketName, prefix == null ? null : prefix.toString(), splitPoints, parallelism, sorted);
+    }
+
+    /**
+     * Lists all objects below root by walking the tree of its common prefixes, with up to concurrency listings at
+     * once, see {@link PrefixWalker}. Objects are emitted as soon as any listing returns them. Common prefixes more
+     * than maxDepth levels below root are not walked, objects below them are listed without delimiter instead.
+     */
+    public Flowable<S3ObjectSummary> walkPrefixes(String bucketName, CharSequence root, String delimiter, int maxDepth, int concurrency) {
+        return walkPrefixes(bucketName, root, delimiter, maxDepth, concurrency, prefix -> true);
+    }
+
+    /**
+     * Like {@link #walkPrefixes(String, CharSequence, String, int, int)}, but common prefixes for which prefixFilter
+     * returns false are skipped together with everything below them.
+     */
+    public Flowable<S3ObjectSummary> walkPrefixes(String bucketName, CharSequence root, String delimiter, int maxDepth, int concurrency,
+            Predicate<String> prefixFilter) {
+        return prefixWalker.walk(bucketName, root == null ? null : root.toString(), delimiter, maxDepth, concurrency, prefixFilter);
+    }
+
     public Single<GetObjectResponse> getObject(String bucketName, CharSequence location) {
+        return getObject(bucketName, location, RequestPriority.NORMAL, 0);
+    }
+
+    /**
+     * See {@link #listObjects(String, CharSequence, RequestPriority, long)}, e.g. background downloads may use low
+     * priority to let requests someone waits for go first.
+     */
+    public Single<GetObjectResponse> getObject(String bucketName, CharSequence location, RequestPriority priority, long deadlineMillis) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, location);
+
+        Request request = httpClient.prepareGet(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(location)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setPriority(priority)
+                .setDeadline(deadlineNanos(deadlineMillis))
+                .build();
+
+        return hedgedSingleWithRetries(
+                emitter -> retrieveResult(request, ConsumeBytesParser.getInstance(), emitter),
+                response -> response.getContent().close());
+    }
+
+    /**
+     * Returns response as soon as headers are received. Object content is streamed as it arrives and reading from the
+     * connection follows demand of content subscriber. See {@link GetObjectStreamResponse} for rules of consuming it.
+     */
+    public Single<GetObjectStreamResponse> getObjectStream(String bucketName, CharSequence location) {
         TextBuilder urlBuilder = TextBuilders.threadLocal();
         urlBuilder.append("/");
         UTF8UrlEncoder.appendEncoded(urlBuilder, location);
 
         Request request = httpClient.prepareGet(urlBuilder.toString())
                 .setBucketName(bucketName)
+                .setKey(location)
                 .setSignatureCalculatorFactory(signatureCalculatorFactory)
                 .build();
 
-        return retrieveResult(request, ConsumeBytesParser.getInstance());
+        return retrieveStream(request, ConsumeStreamParser.getInstance());
+    }
+
+    /**
+     * Returns bytes from first to last position (both inclusive) of the object. Content buffer must be released by
+     * the caller.
+     */
+    public Single<GetObjectRangeResponse> getObjectRange(String bucketName, CharSequence location, long first, long last) {
+        return getObjectRange(bucketName, location, first, last, null);
+    }
+
+    Single<GetObjectRangeResponse> getObjectRange(String bucketName, CharSequence location, long first, long last, String eTag) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, location);
+
+        Request request = httpClient.prepareGet(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(location)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setRange(first, last)
+                .setIfMatch(eTag)
+                .build();
+
+        return hedgedSingleWithRetries(
+                emitter -> retrieveResult(request, ConsumeRangeParser.getInstance(), emitter),
+                response -> response.getContent().release());
+    }
+
+    /**
+     * Downloads object in parts of given size using up to parallelism concurrent ranged GETs, which lets a single
+     * large object use more than one connection. Parts are emitted in order and must be released by the subscriber.
+     * They can be gathered into a single buffer without copying by adding them to a CompositeByteBuf.
+     */
+    public Flowable<ByteBuf> getObjectParallel(String bucketName, CharSequence location, long partSize, int parallelism) {
+        return parallelDownloader.download(bucketName, location.toString(), partSize, parallelism);
+    }
+
+    Single<GetObjectStreamResponse> getObjectStream(String bucketName, CharSequence location, long first, long last, String eTag) {
+        TextBuilder urlBuilder = TextBuilders.threadLocal();
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, location);
+
+        Request request = httpClient.prepareGet(urlBuilder.toString())
+                .setBucketName(bucketName)
+                .setKey(location)
+                .setSignatureCalculatorFactory(signatureCalculatorFactory)
+                .setRange(first, last)
+                .setIfMatch(eTag)
+                .build();
+
+        return retrieveStream(request, ConsumeStreamParser.getInstance());
+    }
+
+    /**
+     * Writes object content into the file as it arrives, without buffering the object in memory. File is created or
+     * truncated.
+     *
+     * @return number of bytes written
+     */
+    public Single<Long> getObjectToFile(String bucketName, CharSequence location, Path file) {
+        return fileDownloader.download(bucketName, location.toString(), file);
+    }
+
+    /**
+     * Downloads object into the file using up to parallelism concurrent ranged GETs of given part size. Every range
+     * writes directly into its own region of the pre-allocated file.
+     *
+     * @return number of bytes written
+     */
+    public Single<Long> getObjectToFile(String bucketName, CharSequence location, Path file, long partSize, int parallelism) {
+        return fileDownloader.download(bucketName, location.toString(), file, partSize, parallelism);
     }
 
     public Completable deleteObject(String bucketName, CharSequence location) {
@@ -199,6 +806,7 @@ public class AsyncS3Client implements AutoCloseable {
 
         Request request = httpClient.prepareDelete(urlBuilder.toString())
                 .setBucketName(bucketName)
+                .setKey(location)
                 .setSignatureCalculatorFactory(signatureCalculatorFactory)
                 .build();
 
@@ -206,6 +814,19 @@ public class AsyncS3Client implements AutoCloseable {
                 .ignoreElement();
     }
 
+    private static long deadlineNanos(long deadlineMillis) {
+        return deadlineMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : 0;
+    }
+
+    private static void appendUploadPartUrl(TextBuilder urlBuilder, CharSequence key, CharSequence uploadId, int partNumber) {
+        urlBuilder.append("/");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, key);
+        urlBuilder.append("?partNumber=")
+                .append(partNumber)
+                .append("&uploadId=");
+        UTF8UrlEncoder.appendEncoded(urlBuilder, uploadId);
+    }
+
     @Override
     public void close() {
         httpClient.close();
@@ -215,7 +836,7 @@ public class AsyncS3Client implements AutoCloseable {
         SubscriptionCompletionHandler<T> completionHandler = new SubscriptionCompletionHandler<>(observer, request, responseParser, errorResponseParser);
         observer.setCancellable(completionHandler::cancel);
 
-        httpClient.executeRequest(request, completionHandler);
+        completionHandler.setExchange(httpClient.executeRequest(request, completionHandler));
     }
 
     private <T> Single<T> retrieveResult(Request request, GenericResponseParser<T> responseParser) {
@@ -228,6 +849,37 @@ public class AsyncS3Client implements AutoCloseable {
         );
     }
 
+    private <T> void retrieveStream(Request request, StreamingResponseParser<T> responseParser, SingleEmitter<? super T> observer) {
+        StreamingSubscriptionCompletionHandler<T> completionHandler = new StreamingSubscriptionCompletionHandler<>(observer, request, responseParser, errorResponseParser);
+        observer.setCancellable(completionHandler::cancel);
+
+        completionHandler.setExchange(httpClient.executeStreamingRequest(request, completionHandler));
+    }
+
+    private <T> Single<T> retrieveStream(Request request, StreamingResponseParser<T> responseParser) {
+        return singleWithRetries(emitter ->
+                retrieveStream(
+                        request,
+                        responseParser,
+                        emitter
+                )
+        );
+    }
+
+    /**
+     * For requests that can be safely sent twice, see {@link RequestHedger}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Single<T> hedgedSingleWithRetries(SingleOnSubscribe<T> source, Consumer<? super T> discard) {
+        if (requestHedger == null) {
+            return singleWithRetries(source);
+        }
+
+        return requestHedger
+                .hedge(Single.create(source), discard)
+                .compose(retryTransformer);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> Single<T> singleWithRetries(SingleOnSubscribe<T> source) {
         return Single
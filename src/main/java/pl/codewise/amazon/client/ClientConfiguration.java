@@ -2,6 +2,9 @@ package pl.codewise.amazon.client;
 
 import com.amazonaws.auth.AWSCredentialsProvider;
 
+import java.util.List;
+import java.util.function.Function;
+
 public class ClientConfiguration {
 
     private final AWSCredentialsProvider credentialsProvider;
@@ -13,14 +16,53 @@ public class ClientConfiguration {
     private final int workerThreadCount;
 
     private final int maxConnections;
+    private final int maxConnectionsPerBucket;
+    private final boolean bucketEndpointsEnabled;
+    private final int dnsRefreshIntervalMillis;
+    private final int warmUpConnections;
+    private final List<String> warmUpBucketNames;
     private final int maxPendingAcquires;
     private final int acquireTimeoutMillis;
+    private final int minConnections;
+    private final int poolGrowthPendingAcquires;
+    private final int poolGrowthWaitMillis;
+    private final int poolShrinkDelayMillis;
 
     private final boolean skipParsingOwner;
     private final boolean skipParsingETag;
     private final boolean skipParsingLastModified;
     private final boolean skipParsingStorageClass;
+    private final boolean listResponseScannerEnabled;
     private final int maxRetries;
+    private final int listingPrefetch;
+    private final boolean listObjectsV2Enabled;
+    private final int retryBaseDelayMillis;
+    private final int retryMaxDelayMillis;
+    private final double retryBudget;
+
+    private final int multipartPartSize;
+    private final int multipartParallelism;
+
+    private final boolean nativeTransportEnabled;
+    private final int socketReceiveBufferSize;
+    private final int socketSendBufferSize;
+    private final int writeBufferLowWaterMark;
+    private final int writeBufferHighWaterMark;
+    private final boolean tcpQuickAckEnabled;
+    private final int maxPipelinedRequests;
+
+    private final int hedgeDelayMillis;
+    private final double hedgePercentile;
+    private final double hedgeBudget;
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final double concurrencyBackoffRatio;
+    private final double latencyTolerance;
+
+    private final Function<CharSequence, ? extends CharSequence> prefixExtractor;
+    private final int readsPerSecondPerPrefix;
+    private final int writesPerSecondPerPrefix;
 
     public ClientConfiguration(
             AWSCredentialsProvider credentialsProvider,
@@ -29,13 +71,47 @@ public class ClientConfiguration {
             int requestTimeoutMillis,
             int workerThreadCount,
             int maxConnections,
+            int maxConnectionsPerBucket,
+            boolean bucketEndpointsEnabled,
+            int dnsRefreshIntervalMillis,
+            int warmUpConnections,
+            List<String> warmUpBucketNames,
             int maxPendingAcquires,
             int acquireTimeoutMillis,
+            int minConnections,
+            int poolGrowthPendingAcquires,
+            int poolGrowthWaitMillis,
+            int poolShrinkDelayMillis,
             boolean skipParsingOwner,
             boolean skipParsingETag,
             boolean skipParsingLastModified,
             boolean skipParsingStorageClass,
-            int maxRetries) {
+            boolean listResponseScannerEnabled,
+            int maxRetries,
+            int retryBaseDelayMillis,
+            int retryMaxDelayMillis,
+            double retryBudget,
+            int listingPrefetch,
+            boolean listObjectsV2Enabled,
+            int multipartPartSize,
+            int multipartParallelism,
+            boolean nativeTransportEnabled,
+            int socketReceiveBufferSize,
+            int socketSendBufferSize,
+            int writeBufferLowWaterMark,
+            int writeBufferHighWaterMark,
+            boolean tcpQuickAckEnabled,
+            int maxPipelinedRequests,
+            int hedgeDelayMillis,
+            double hedgePercentile,
+            double hedgeBudget,
+            int minConcurrency,
+            int maxConcurrency,
+            double concurrencyBackoffRatio,
+            double latencyTolerance,
+            Function<CharSequence, ? extends CharSequence> prefixExtractor,
+            int readsPerSecondPerPrefix,
+            int writesPerSecondPerPrefix) {
         this.credentialsProvider = credentialsProvider;
         this.s3Location = s3Location;
 
@@ -44,15 +120,54 @@ public class ClientConfiguration {
         this.workerThreadCount = workerThreadCount;
 
         this.maxConnections = maxConnections;
+        this.maxConnectionsPerBucket = maxConnectionsPerBucket;
+        this.bucketEndpointsEnabled = bucketEndpointsEnabled;
+        this.dnsRefreshIntervalMillis = dnsRefreshIntervalMillis;
+        this.warmUpConnections = warmUpConnections;
+        this.warmUpBucketNames = warmUpBucketNames;
         this.maxPendingAcquires = maxPendingAcquires;
         this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.minConnections = minConnections;
+        this.poolGrowthPendingAcquires = poolGrowthPendingAcquires;
+        this.poolGrowthWaitMillis = poolGrowthWaitMillis;
+        this.poolShrinkDelayMillis = poolShrinkDelayMillis;
 
         this.skipParsingOwner = skipParsingOwner;
         this.skipParsingETag = skipParsingETag;
         this.skipParsingLastModified = skipParsingLastModified;
         this.skipParsingStorageClass = skipParsingStorageClass;
+        this.listResponseScannerEnabled = listResponseScannerEnabled;
 
         this.maxRetries = maxRetries;
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+        this.retryBudget = retryBudget;
+        this.listingPrefetch = listingPrefetch;
+        this.listObjectsV2Enabled = listObjectsV2Enabled;
+
+        this.multipartPartSize = multipartPartSize;
+        this.multipartParallelism = multipartParallelism;
+
+        this.nativeTransportEnabled = nativeTransportEnabled;
+        this.socketReceiveBufferSize = socketReceiveBufferSize;
+        this.socketSendBufferSize = socketSendBufferSize;
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        this.tcpQuickAckEnabled = tcpQuickAckEnabled;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeBudget = hedgeBudget;
+
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.concurrencyBackoffRatio = concurrencyBackoffRatio;
+        this.latencyTolerance = latencyTolerance;
+
+        this.prefixExtractor = prefixExtractor;
+        this.readsPerSecondPerPrefix = readsPerSecondPerPrefix;
+        this.writesPerSecondPerPrefix = writesPerSecondPerPrefix;
     }
 
     public AWSCredentialsProvider getCredentialsProvider() {
@@ -79,6 +194,26 @@ public class ClientConfiguration {
         return maxConnections;
     }
 
+    public int getMaxConnectionsPerBucket() {
+        return maxConnectionsPerBucket;
+    }
+
+    public boolean isBucketEndpointsEnabled() {
+        return bucketEndpointsEnabled;
+    }
+
+    public int getDnsRefreshIntervalMillis() {
+        return dnsRefreshIntervalMillis;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public List<String> getWarmUpBucketNames() {
+        return warmUpBucketNames;
+    }
+
     public int getMaxPendingAcquires() {
         return maxPendingAcquires;
     }
@@ -87,6 +222,26 @@ public class ClientConfiguration {
         return acquireTimeoutMillis;
     }
 
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public boolean isElasticPoolEnabled() {
+        return minConnections < maxConnections;
+    }
+
+    public int getPoolGrowthPendingAcquires() {
+        return poolGrowthPendingAcquires;
+    }
+
+    public int getPoolGrowthWaitMillis() {
+        return poolGrowthWaitMillis;
+    }
+
+    public int getPoolShrinkDelayMillis() {
+        return poolShrinkDelayMillis;
+    }
+
     public boolean isSkipParsingOwner() {
         return skipParsingOwner;
     }
@@ -103,10 +258,122 @@ public class ClientConfiguration {
         return skipParsingStorageClass;
     }
 
+    public boolean isListResponseScannerEnabled() {
+        return listResponseScannerEnabled;
+    }
+
     public int getMaxRetries() {
         return maxRetries;
     }
 
+    public int getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    public int getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    public double getRetryBudget() {
+        return retryBudget;
+    }
+
+    public int getListingPrefetch() {
+        return listingPrefetch;
+    }
+
+    public boolean isListObjectsV2Enabled() {
+        return listObjectsV2Enabled;
+    }
+
+    public int getMultipartPartSize() {
+        return multipartPartSize;
+    }
+
+    public int getMultipartParallelism() {
+        return multipartParallelism;
+    }
+
+    public boolean isNativeTransportEnabled() {
+        return nativeTransportEnabled;
+    }
+
+    public int getSocketReceiveBufferSize() {
+        return socketReceiveBufferSize;
+    }
+
+    public int getSocketSendBufferSize() {
+        return socketSendBufferSize;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public boolean isTcpQuickAckEnabled() {
+        return tcpQuickAckEnabled;
+    }
+
+    public int getMaxPipelinedRequests() {
+        return maxPipelinedRequests;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgeDelayMillis > 0 || hedgePercentile > 0;
+    }
+
+    public int getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public double getHedgeBudget() {
+        return hedgeBudget;
+    }
+
+    public boolean isAdaptiveConcurrencyEnabled() {
+        return maxConcurrency > 0;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public double getConcurrencyBackoffRatio() {
+        return concurrencyBackoffRatio;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public boolean isPrefixRateLimitEnabled() {
+        return prefixExtractor != null;
+    }
+
+    public Function<CharSequence, ? extends CharSequence> getPrefixExtractor() {
+        return prefixExtractor;
+    }
+
+    public int getReadsPerSecondPerPrefix() {
+        return readsPerSecondPerPrefix;
+    }
+
+    public int getWritesPerSecondPerPrefix() {
+        return writesPerSecondPerPrefix;
+    }
+
     public static ClientConfigurationBuilder builder() {
         return new ClientConfigurationBuilder();
     }
@@ -4,6 +4,11 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.internal.StaticCredentialsProvider;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
 public class ClientConfigurationBuilder {
 
     public static final String DEFAULT_S3_LOCATION = "s3.amazonaws.com";
@@ -15,9 +20,36 @@ public class ClientConfigurationBuilder {
 
     public static final int DEFAULT_MAX_CONNECTIONS = 10;
     public static final int DEFAULT_MAX_PENDING_ACQUIRES = 1000;
+    public static final int DEFAULT_DNS_REFRESH_INTERVAL_MILLIS = 60_000;
     public static final int DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_POOL_GROWTH_PENDING_ACQUIRES = 4;
+    public static final int DEFAULT_POOL_GROWTH_WAIT_MILLIS = 20;
+    public static final int DEFAULT_POOL_SHRINK_DELAY_MILLIS = 60_000;
 
     public static final int DEFAULT_MAX_RETRIES = 0;
+    public static final int DEFAULT_RETRY_BASE_DELAY_MILLIS = 100;
+    public static final int DEFAULT_RETRY_MAX_DELAY_MILLIS = 20_000;
+    public static final double DEFAULT_RETRY_BUDGET = 0.1;
+
+    public static final int DEFAULT_LISTING_PREFETCH = 1;
+
+    public static final int MIN_MULTIPART_PART_SIZE = 5 * 1024 * 1024;
+    public static final int DEFAULT_MULTIPART_PART_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_MULTIPART_PARALLELISM = 4;
+
+    public static final int DEFAULT_SOCKET_BUFFER_SIZE = 0;
+    public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+    public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+    public static final int DEFAULT_MAX_PIPELINED_REQUESTS = 1;
+
+    public static final double DEFAULT_HEDGE_BUDGET = 0.05;
+
+    public static final double DEFAULT_CONCURRENCY_BACKOFF_RATIO = 0.7;
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    public static final int DEFAULT_READS_PER_SECOND_PER_PREFIX = 5500;
+    public static final int DEFAULT_WRITES_PER_SECOND_PER_PREFIX = 3500;
 
     private String s3Location = DEFAULT_S3_LOCATION;
     private AWSCredentialsProvider credentialsProvider;
@@ -28,15 +60,56 @@ public class ClientConfigurationBuilder {
     private int workerThreadCount = DEFAULT_WORKER_THREAD_COUNT;
 
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxConnectionsPerBucket;
+    private boolean bucketEndpointsEnabled = true;
+    private int dnsRefreshIntervalMillis = DEFAULT_DNS_REFRESH_INTERVAL_MILLIS;
+    private int warmUpConnections;
+    private List<String> warmUpBucketNames = Collections.emptyList();
     private int maxPendingAcquires = DEFAULT_MAX_PENDING_ACQUIRES;
     private int acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+    private int minConnections;
+    private int poolGrowthPendingAcquires = DEFAULT_POOL_GROWTH_PENDING_ACQUIRES;
+    private int poolGrowthWaitMillis = DEFAULT_POOL_GROWTH_WAIT_MILLIS;
+    private int poolShrinkDelayMillis = DEFAULT_POOL_SHRINK_DELAY_MILLIS;
 
     private boolean skipParsingOwner;
     private boolean skipParsingETag;
     private boolean skipParsingLastModified;
     private boolean skipParsingStorageClass;
+    private boolean listResponseScannerEnabled;
 
     private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int retryBaseDelayMillis = DEFAULT_RETRY_BASE_DELAY_MILLIS;
+    private int retryMaxDelayMillis = DEFAULT_RETRY_MAX_DELAY_MILLIS;
+    private double retryBudget = DEFAULT_RETRY_BUDGET;
+
+    private int listingPrefetch = DEFAULT_LISTING_PREFETCH;
+    private boolean listObjectsV2Enabled;
+
+    private int multipartPartSize = DEFAULT_MULTIPART_PART_SIZE;
+    private int multipartParallelism = DEFAULT_MULTIPART_PARALLELISM;
+
+    private boolean nativeTransportEnabled = true;
+    private int socketReceiveBufferSize = DEFAULT_SOCKET_BUFFER_SIZE;
+    private int socketSendBufferSize = DEFAULT_SOCKET_BUFFER_SIZE;
+    private int writeBufferLowWaterMark = DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+    private int writeBufferHighWaterMark = DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+    private boolean tcpQuickAckEnabled;
+
+    private int maxPipelinedRequests = DEFAULT_MAX_PIPELINED_REQUESTS;
+
+    private int hedgeDelayMillis;
+    private double hedgePercentile;
+    private double hedgeBudget = DEFAULT_HEDGE_BUDGET;
+
+    private int minConcurrency;
+    private int maxConcurrency;
+    private double concurrencyBackoffRatio = DEFAULT_CONCURRENCY_BACKOFF_RATIO;
+    private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+
+    private Function<CharSequence, ? extends CharSequence> prefixExtractor;
+    private int readsPerSecondPerPrefix = DEFAULT_READS_PER_SECOND_PER_PREFIX;
+    private int writesPerSecondPerPrefix = DEFAULT_WRITES_PER_SECOND_PER_PREFIX;
 
     public ClientConfigurationBuilder useCredentials(AWSCredentials credentials) {
         this.credentialsProvider = new StaticCredentialsProvider(credentials);
@@ -69,6 +142,79 @@ public class ClientConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Makes the number of connections shared by all buckets follow the load. It starts at minConnections, grows
+     * towards maxConnections when acquires have to wait (see {@link #withPoolGrowthThresholds(int, int)}) and shrinks
+     * back to what was actually used after a quiet period (see {@link #withPoolShrinkDelay(int)}). Connections above
+     * the current size are closed by the idle connection handler.
+     */
+    public ClientConfigurationBuilder withElasticPoolSize(int minConnections, int maxConnections) {
+        if (minConnections < 1 || minConnections > maxConnections) {
+            throw new IllegalArgumentException("Minimum pool size must be positive and not greater than maximum pool size");
+        }
+
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Elastic pool grows when more than pendingAcquires acquires are waiting for a connection or the oldest of them
+     * waits longer than waitMillis.
+     */
+    public ClientConfigurationBuilder withPoolGrowthThresholds(int pendingAcquires, int waitMillis) {
+        this.poolGrowthPendingAcquires = pendingAcquires;
+        this.poolGrowthWaitMillis = waitMillis;
+        return this;
+    }
+
+    /**
+     * Elastic pool shrinks to the highest number of connections used at once during given period, provided it did not
+     * have to grow in that period.
+     */
+    public ClientConfigurationBuilder withPoolShrinkDelay(int poolShrinkDelayMillis) {
+        this.poolShrinkDelayMillis = poolShrinkDelayMillis;
+        return this;
+    }
+
+    /**
+     * Limits connections used by a single bucket so that a busy bucket cannot take the whole pool. By default a bucket
+     * may use all connections, which are limited by {@link #withPoolSize(int)}.
+     */
+    public ClientConfigurationBuilder withPoolSizePerBucket(int maxConnectionsPerBucket) {
+        this.maxConnectionsPerBucket = maxConnectionsPerBucket;
+        return this;
+    }
+
+    /**
+     * By default connections of every bucket are made to its virtual host (bucket name followed by S3 location), so
+     * that they are spread over Amazon front-ends the same way the bucket is. Locations given as IP address or
+     * localhost always use shared endpoint. This makes all buckets connect to S3 location itself.
+     */
+    public ClientConfigurationBuilder useSharedEndpoint() {
+        bucketEndpointsEnabled = false;
+        return this;
+    }
+
+    /**
+     * Connections are spread over all addresses S3 location resolves to. Addresses are resolved again with given
+     * interval, connections to addresses that disappeared are closed when they are returned to the pool.
+     */
+    public ClientConfigurationBuilder withDnsRefreshInterval(int dnsRefreshIntervalMillis) {
+        this.dnsRefreshIntervalMillis = dnsRefreshIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Opens given number of connections to each of the buckets in parallel when the client is created. See
+     * {@link AsyncS3Client#warmedUp()}.
+     */
+    public ClientConfigurationBuilder warmUpOnStart(int connections, String... bucketNames) {
+        this.warmUpConnections = connections;
+        this.warmUpBucketNames = Arrays.asList(bucketNames);
+        return this;
+    }
+
     public ClientConfigurationBuilder withWorkerThreadCount(int workerThreadCount) {
         this.workerThreadCount = workerThreadCount;
         return this;
@@ -104,11 +250,255 @@ public class ClientConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Parses list responses by scanning their bytes rather than with XPP3, see
+     * {@link pl.codewise.amazon.client.xml.ListResponseScanner}. Applies to ListObjects, not to ListObjectsV2.
+     */
+    public ClientConfigurationBuilder useListResponseScanner() {
+        listResponseScannerEnabled = true;
+        return this;
+    }
+
     public ClientConfigurationBuilder withRetriesEnabled(int maxRetries) {
         this.maxRetries = maxRetries;
         return this;
     }
 
+    /**
+     * Bounds of random delays between retries, see {@link RetryPolicy}. 100 ms and 20 s by default.
+     */
+    public ClientConfigurationBuilder withRetryBackoff(int retryBaseDelayMillis, int retryMaxDelayMillis) {
+        if (retryBaseDelayMillis < 1 || retryMaxDelayMillis < retryBaseDelayMillis) {
+            throw new IllegalArgumentException("Retry delays must be positive and base delay must not exceed max delay");
+        }
+
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+        return this;
+    }
+
+    /**
+     * Fraction of requests that may be retried, 10% by default. Zero removes the limit.
+     */
+    public ClientConfigurationBuilder withRetryBudget(double retryBudget) {
+        this.retryBudget = retryBudget;
+        return this;
+    }
+
+    /**
+     * Number of pages {@link AsyncS3Client#listAllPages} fetches ahead of its subscriber, one by default.
+     */
+    public ClientConfigurationBuilder withListingPrefetch(int listingPrefetch) {
+        if (listingPrefetch < 0) {
+            throw new IllegalArgumentException("Listing prefetch must not be negative");
+        }
+
+        this.listingPrefetch = listingPrefetch;
+        return this;
+    }
+
+    /**
+     * Makes {@link AsyncS3Client#listAllPages}, {@link AsyncS3Client#listAllObjects},
+     * {@link AsyncS3Client#listAllObjectsInParallel} and {@link AsyncS3Client#walkPrefixes} page through listings with
+     * ListObjectsV2, which leaves owners out of the response.
+     */
+    public ClientConfigurationBuilder useListObjectsV2() {
+        listObjectsV2Enabled = true;
+        return this;
+    }
+
+    /**
+     * Size of parts that multipart uploads split the object into. Amazon requires all parts but the last one to be at
+     * least {@link #MIN_MULTIPART_PART_SIZE} bytes.
+     */
+    public ClientConfigurationBuilder withMultipartPartSize(int multipartPartSize) {
+        if (multipartPartSize < MIN_MULTIPART_PART_SIZE) {
+            throw new IllegalArgumentException("Multipart part size must be at least " + MIN_MULTIPART_PART_SIZE + " bytes");
+        }
+
+        this.multipartPartSize = multipartPartSize;
+        return this;
+    }
+
+    /**
+     * Maximum number of parts of a single multipart upload that are uploaded concurrently.
+     */
+    public ClientConfigurationBuilder withMultipartParallelism(int multipartParallelism) {
+        this.multipartParallelism = multipartParallelism;
+        return this;
+    }
+
+    /**
+     * By default native epoll transport is used when it is available and NIO otherwise. It is available on Linux
+     * x86_64, where the client depends on the native library of netty-transport-native-epoll. On other platforms
+     * users have to add the artifact with classifier of their platform to use it. This forces NIO.
+     */
+    public ClientConfigurationBuilder disableNativeTransport() {
+        nativeTransportEnabled = false;
+        return this;
+    }
+
+    /**
+     * Sets SO_RCVBUF. Values lower than one leave the buffer size (and its autotuning) to the operating system.
+     */
+    public ClientConfigurationBuilder withSocketReceiveBufferSize(int socketReceiveBufferSize) {
+        this.socketReceiveBufferSize = socketReceiveBufferSize;
+        return this;
+    }
+
+    /**
+     * Sets SO_SNDBUF. Values lower than one leave the buffer size (and its autotuning) to the operating system.
+     */
+    public ClientConfigurationBuilder withSocketSendBufferSize(int socketSendBufferSize) {
+        this.socketSendBufferSize = socketSendBufferSize;
+        return this;
+    }
+
+    /**
+     * Channel stops being writable when more than high water mark bytes are waiting to be written and becomes
+     * writable again below low water mark. Streamed uploads stop pulling data while channel is not writable.
+     */
+    public ClientConfigurationBuilder withWriteBufferWaterMarks(int writeBufferLowWaterMark, int writeBufferHighWaterMark) {
+        if (writeBufferLowWaterMark < 0 || writeBufferLowWaterMark > writeBufferHighWaterMark) {
+            throw new IllegalArgumentException("Write buffer low water mark must be non negative and not greater than high water mark");
+        }
+
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+        return this;
+    }
+
+    /**
+     * Sets TCP_QUICKACK so that responses are acknowledged immediately. Supported by native transport only, ignored
+     * otherwise.
+     */
+    public ClientConfigurationBuilder enableTcpQuickAck() {
+        tcpQuickAckEnabled = true;
+        return this;
+    }
+
+    /**
+     * Lets up to given number of gets and lists share a connection, written back to back without waiting for
+     * responses. Saves round trips for small objects, but a slow response holds up the ones behind it and requests
+     * sharing a connection fail together when it breaks. Streamed gets and requests with body are never pipelined.
+     */
+    public ClientConfigurationBuilder enablePipelining(int maxPipelinedRequests) {
+        if (maxPipelinedRequests < 1) {
+            throw new IllegalArgumentException("Number of pipelined requests must be positive");
+        }
+
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        return this;
+    }
+
+    /**
+     * Gets and lists that did not complete within given delay are sent again on another connection and the response
+     * that arrives first is used. Number of such hedged requests is limited by {@link #withHedgeBudget(double)}.
+     */
+    public ClientConfigurationBuilder enableHedging(int hedgeDelayMillis) {
+        if (hedgeDelayMillis < 1) {
+            throw new IllegalArgumentException("Hedge delay must be positive");
+        }
+
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        return this;
+    }
+
+    /**
+     * Like {@link #enableHedging(int)}, but the delay follows given percentile (e.g. 95) of latencies of recent
+     * requests. Initial delay is used until enough requests were seen.
+     */
+    public ClientConfigurationBuilder enableHedgingAtPercentile(double hedgePercentile, int initialHedgeDelayMillis) {
+        if (hedgePercentile <= 0 || hedgePercentile >= 100) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 100");
+        }
+
+        enableHedging(initialHedgeDelayMillis);
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
+
+    /**
+     * Fraction of requests that may be hedged, 5% by default.
+     */
+    public ClientConfigurationBuilder withHedgeBudget(double hedgeBudget) {
+        this.hedgeBudget = hedgeBudget;
+        return this;
+    }
+
+    /**
+     * Limits number of requests in flight across all buckets to between given bounds, starting at the maximum. The
+     * limit is cut when S3 responds with 503 Slow Down or latency rises and grows back slowly as requests succeed.
+     * Requests over the limit wait with the same queue size and timeout as connection acquires.
+     */
+    public ClientConfigurationBuilder enableAdaptiveConcurrency(int minConcurrency, int maxConcurrency) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException("Concurrency bounds must be positive and min must not exceed max");
+        }
+
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Factor the concurrency limit is multiplied by when S3 is throttling requests, 0.7 by default.
+     */
+    public ClientConfigurationBuilder withConcurrencyBackoffRatio(double concurrencyBackoffRatio) {
+        if (concurrencyBackoffRatio <= 0 || concurrencyBackoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+
+        this.concurrencyBackoffRatio = concurrencyBackoffRatio;
+        return this;
+    }
+
+    /**
+     * How many times recent latency may exceed its long-term average before the concurrency limit is cut, 2 by
+     * default. Zero makes the limit react to throttling only.
+     */
+    public ClientConfigurationBuilder withLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    /**
+     * Delays gets, puts and deletes so that every key prefix stays within S3 request rate limits, by default 5500
+     * reads and 3500 writes per second. Prefix of a key is the part up to its last slash.
+     */
+    public ClientConfigurationBuilder enablePrefixRateLimit() {
+        return enablePrefixRateLimit(ClientConfigurationBuilder::parentPrefix);
+    }
+
+    /**
+     * Like {@link #enablePrefixRateLimit()}, but prefix of a key is found by given function, e.g. to match the key
+     * layout S3 partitioned the bucket by.
+     */
+    public ClientConfigurationBuilder enablePrefixRateLimit(Function<CharSequence, ? extends CharSequence> prefixExtractor) {
+        this.prefixExtractor = prefixExtractor;
+        return this;
+    }
+
+    public ClientConfigurationBuilder withPrefixRateLimits(int readsPerSecond, int writesPerSecond) {
+        if (readsPerSecond < 1 || writesPerSecond < 1) {
+            throw new IllegalArgumentException("Request rates must be positive");
+        }
+
+        this.readsPerSecondPerPrefix = readsPerSecond;
+        this.writesPerSecondPerPrefix = writesPerSecond;
+        return this;
+    }
+
+    private static CharSequence parentPrefix(CharSequence key) {
+        for (int i = key.length() - 1; i >= 0; i--) {
+            if (key.charAt(i) == '/') {
+                return key.subSequence(0, i + 1);
+            }
+        }
+
+        return "";
+    }
+
     public ClientConfiguration build() {
         return new ClientConfiguration(
                 credentialsProvider,
@@ -117,13 +507,47 @@ public class ClientConfigurationBuilder {
                 requestTimeoutMillis,
                 workerThreadCount,
                 maxConnections,
+                maxConnectionsPerBucket > 0 ? maxConnectionsPerBucket : maxConnections,
+                bucketEndpointsEnabled,
+                dnsRefreshIntervalMillis,
+                warmUpConnections,
+                warmUpBucketNames,
                 maxPendingAcquires,
                 acquireTimeoutMillis,
+                minConnections > 0 ? Math.min(minConnections, maxConnections) : maxConnections,
+                poolGrowthPendingAcquires,
+                poolGrowthWaitMillis,
+                poolShrinkDelayMillis,
                 skipParsingOwner,
                 skipParsingETag,
                 skipParsingLastModified,
                 skipParsingStorageClass,
-                maxRetries
+                listResponseScannerEnabled,
+                maxRetries,
+                retryBaseDelayMillis,
+                retryMaxDelayMillis,
+                retryBudget,
+                listingPrefetch,
+                listObjectsV2Enabled,
+                multipartPartSize,
+                multipartParallelism,
+                nativeTransportEnabled,
+                socketReceiveBufferSize,
+                socketSendBufferSize,
+                writeBufferLowWaterMark,
+                writeBufferHighWaterMark,
+                tcpQuickAckEnabled,
+                maxPipelinedRequests,
+                hedgeDelayMillis,
+                hedgePercentile,
+                hedgeBudget,
+                minConcurrency,
+                maxConcurrency,
+                concurrencyBackoffRatio,
+                latencyTolerance,
+                prefixExtractor,
+                readsPerSecondPerPrefix,
+                writesPerSecondPerPrefix
         );
     }
 }
@@ -0,0 +1,212 @@
+package pl.codewise.amazon.client;
+
+import io.netty.buffer.ByteBuf;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes object content into a file chunk by chunk as it arrives, using positional writes straight from the NIO
+ * buffers of received chunks. Writes are done by {@link AsynchronousFileChannel}, off the event loop of the
+ * connection, and the next chunk is requested only once the previous one is written, which keeps the memory used by
+ * a download at a single chunk and throttles the connection to the speed of the disk.
+ * <p>
+ * Parallel download pre-allocates the file once the size of the object is known and lets ranges write into their
+ * own regions of it concurrently. The first range is written right away, so that its content is consumed, or
+ * cancelled together with the download, whatever happens to the rest of it.
+ */
+class FileDownloader {
+
+    private final AsyncS3Client client;
+
+    FileDownloader(AsyncS3Client client) {
+        this.client = client;
+    }
+
+    Single<Long> download(String bucketName, String key, Path file) {
+        return Single.using(
+                () -> open(file),
+                channel -> client.getObjectStream(bucketName, key)
+                        .flatMap(response -> write(response.getContent(), channel, 0)),
+                AsynchronousFileChannel::close);
+    }
+
+    Single<Long> download(String bucketName, String key, Path file, long partSize, int parallelism) {
+        return Single.using(
+                () -> open(file),
+                channel -> client.getObjectStream(bucketName, key, 0, partSize - 1, null)
+                        .flatMap(first -> {
+                            long length = first.getObjectLength();
+                            long partCount = (length + partSize - 1) / partSize;
+                            Flowable<Long> remaining = Flowable
+                                    .rangeLong(1, Math.max(0, partCount - 1))
+                                    .flatMapSingle(part -> client
+                                            .getObjectStream(bucketName, key, part * partSize, Math.min(length, (part + 1) * partSize) - 1, first.getETag())
+                                            .flatMap(response -> write(response.getContent(), channel, part * partSize)),
+                                            false, Math.max(1, parallelism - 1));
+
+                            return write(first.getContent(), channel, 0)
+                                    .toFlowable()
+                                    .mergeWith(preallocate(channel, length).andThen(remaining))
+                                    .reduce(0L, (written, partWritten) -> written + partWritten);
+                        })
+                        .onErrorResumeNext(error -> ParallelDownloader.isEmptyObject(error) ? Single.just(0L) : Single.error(error)),
+                AsynchronousFileChannel::close);
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    static Single<Long> write(Flowable<ByteBuf> content, AsynchronousFileChannel channel, long position) {
+        return Single.create(emitter -> content.subscribe(new ChunkWriter(channel, position, emitter)));
+    }
+
+    private static Completable preallocate(AsynchronousFileChannel channel, long length) {
+        if (length <= 0) {
+            return Completable.complete();
+        }
+
+        return Completable.create(emitter -> channel.write(ByteBuffer.allocate(1), length - 1, null,
+                new CompletionHandler<Integer, Void>() {
+                    @Override
+                    public void completed(Integer written, Void attachment) {
+                        emitter.onComplete();
+                    }
+
+                    @Override
+                    public void failed(Throwable e, Void attachment) {
+                        emitter.tryOnError(e);
+                    }
+                }));
+    }
+
+    private static AsynchronousFileChannel open(Path file) throws IOException {
+        return AsynchronousFileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Requests one chunk at a time and writes it before requesting the next one, so there is never a queue of
+     * received chunks to release when the download is cancelled. Chunk being written is released once its write
+     * completes, also after cancellation, as the file channel may still be reading from it.
+     */
+    private static class ChunkWriter implements Subscriber<ByteBuf>, CompletionHandler<Integer, ByteBuf> {
+
+        private final AsynchronousFileChannel channel;
+        private final long start;
+        private final SingleEmitter<Long> emitter;
+
+        private Subscription subscription;
+        private ByteBuffer[] buffers;
+        private int bufferIndex;
+        private long position;
+        private boolean writing;
+        private boolean contentComplete;
+
+        ChunkWriter(AsynchronousFileChannel channel, long position, SingleEmitter<Long> emitter) {
+            this.channel = channel;
+            this.start = position;
+            this.position = position;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            emitter.setCancellable(subscription::cancel);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuf chunk) {
+            if (emitter.isDisposed()) {
+                chunk.release();
+                return;
+            }
+
+            synchronized (this) {
+                writing = true;
+                buffers = chunk.nioBuffers();
+                bufferIndex = 0;
+            }
+            writeNext(chunk);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            emitter.tryOnError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            boolean done;
+            synchronized (this) {
+                contentComplete = true;
+                done = !writing;
+            }
+
+            if (done) {
+                emitter.onSuccess(written());
+            }
+        }
+
+        @Override
+        public void completed(Integer written, ByteBuf chunk) {
+            synchronized (this) {
+                position += written;
+            }
+            writeNext(chunk);
+        }
+
+        @Override
+        public void failed(Throwable e, ByteBuf chunk) {
+            chunk.release();
+            subscription.cancel();
+            emitter.tryOnError(e);
+        }
+
+        private void writeNext(ByteBuf chunk) {
+            ByteBuffer buffer;
+            long writePosition;
+            synchronized (this) {
+                while (bufferIndex < buffers.length && !buffers[bufferIndex].hasRemaining()) {
+                    bufferIndex++;
+                }
+                buffer = bufferIndex < buffers.length ? buffers[bufferIndex] : null;
+                writePosition = position;
+            }
+
+            if (buffer != null && !emitter.isDisposed()) {
+                channel.write(buffer, writePosition, chunk, this);
+                return;
+            }
+
+            chunk.release();
+            boolean done;
+            synchronized (this) {
+                writing = false;
+                buffers = null;
+                done = contentComplete;
+            }
+
+            if (done) {
+                emitter.onSuccess(written());
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        private synchronized long written() {
+            return position - start;
+        }
+    }
+}
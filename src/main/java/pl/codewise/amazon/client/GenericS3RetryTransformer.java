@@ -1,107 +1,74 @@
 package pl.codewise.amazon.client;
 
-import com.amazonaws.services.s3.model.AmazonS3Exception;
 import io.reactivex.Flowable;
 import io.reactivex.Scheduler;
+import io.reactivex.Single;
 import io.reactivex.SingleTransformer;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-
-import static io.reactivex.Flowable.range;
 
 public class GenericS3RetryTransformer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GenericS3RetryTransformer.class);
 
+    private static final long DEFAULT_BASE_DELAY_MILLIS = 1000;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 20_000;
+
     public static <T> SingleTransformer<T, T> forRetries(
             int maxRetries,
             Scheduler timeoutScheduler
     ) {
-        return o -> o
-                .retryWhen(observable ->
-                        observable.zipWith(range(1, maxRetries + 1), Pair::of)
-                                .flatMap(pair -> {
-                                    Throwable throwable = pair.getLeft();
-                                    Integer retry = pair.getRight();
+        return forPolicy(
+                new RetryPolicy(maxRetries, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, 0),
+                timeoutScheduler
+        );
+    }
+
+    public static <T> SingleTransformer<T, T> forPolicy(
+            RetryPolicy retryPolicy,
+            Scheduler timeoutScheduler
+    ) {
+        return o -> Single.defer(() -> {
+            retryPolicy.requestStarted();
 
-                                    if (retryLogic(
-                                            maxRetries,
-                                            retry,
-                                            throwable
-                                    )) {
-                                        return Flowable.timer(
-                                                retry,
-                                                TimeUnit.SECONDS,
-                                                timeoutScheduler
-                                        );
-                                    }
+            long[] previousDelayMillis = {retryPolicy.getBaseDelayMillis()};
+            int[] retry = {0};
 
-                                    return Flowable.<Integer>error(throwable);
-                                })
+            return o.retryWhen(errors -> errors.flatMap(throwable -> {
+                retry[0]++;
+                if (!shouldRetry(retryPolicy, retry[0], throwable)) {
+                    return Flowable.<Long>error(throwable);
+                }
+
+                long delayMillis = retryPolicy.nextDelayMillis(previousDelayMillis[0]);
+                previousDelayMillis[0] = delayMillis;
+                return Flowable.timer(
+                        delayMillis,
+                        TimeUnit.MILLISECONDS,
+                        timeoutScheduler
                 );
+            }));
+        });
     }
 
-    private static boolean retryLogic(
-            int maxRetries,
+    private static boolean shouldRetry(
+            RetryPolicy retryPolicy,
             int retry,
             Throwable throwable
     ) {
-        if (throwable instanceof RejectedExecutionException) {
-            if (throwable.getMessage().contains("operations under limit")) {
-                return true;
-            }
+        if (retry > retryPolicy.getMaxRetries() || !retryPolicy.isRetryable(throwable)) {
+            LOGGER.debug("Not retrying ({}) call that failed due to {}", retry, throwable.getMessage());
+            return false;
         }
 
-        if (retry <= maxRetries) {
-            if (throwable instanceof IOException) {
-                LOGGER.debug("Retrying ({}) call that failed due to IOException: {}", retry, throwable.getMessage());
-                return true;
-            }
-
-            if (throwable instanceof AmazonS3Exception) {
-                boolean willRetry =
-                        isInternalServerError(throwable) ||
-                                isRequestTimeout(throwable) ||
-                                isSlowDown(throwable);
-
-                if (willRetry) {
-                    LOGGER.debug("Retrying ({}) call that failed due to Amazon error: {}", retry, throwable.getMessage());
-                }
-
-                return willRetry;
-            }
-
-            if (throwable instanceof TimeoutException) {
-                LOGGER.debug("Retrying ({}) call that timed out", retry);
-                return true;
-            }
-
-            if (throwable instanceof io.netty.handler.timeout.TimeoutException) {
-                LOGGER.debug("Retrying ({}) call that timed out", retry);
-                return true;
-            }
-
+        if (!retryPolicy.tryTakeBudget()) {
+            LOGGER.debug("Not retrying ({}) call that failed due to {}, retry budget is exhausted", retry, throwable.getMessage());
+            return false;
         }
 
-        LOGGER.debug("Not retrying ({}) call that failed due to {}", retry, throwable.getMessage());
-        return false;
-    }
-
-    private static boolean isRequestTimeout(Throwable throwable) {
-        return throwable.getMessage().contains("Status Code: 500");
-    }
-
-    private static boolean isInternalServerError(Throwable throwable) {
-        return throwable.getMessage().contains("Error Code: RequestTimeout");
-    }
-
-    private static boolean isSlowDown(Throwable throwable) {
-        return throwable.getMessage().contains("Slow Down");
+        LOGGER.debug("Retrying ({}) call that failed due to {}", retry, throwable.getMessage());
+        return true;
     }
 }
@@ -0,0 +1,48 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.Headers;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+
+/**
+ * Part of object content returned for a ranged GET. Content buffer must be released by the receiver.
+ */
+public class GetObjectRangeResponse {
+
+    private final ByteBuf content;
+    private final HttpHeaders headers;
+
+    public GetObjectRangeResponse(ByteBuf content, HttpHeaders headers) {
+        this.content = content;
+        this.headers = headers;
+    }
+
+    public ByteBuf getContent() {
+        return content;
+    }
+
+    /**
+     * @return length of the whole object taken from Content-Range header or length of the content if server returned
+     * whole object
+     */
+    public long getObjectLength() {
+        return getObjectLength(headers, content.readableBytes());
+    }
+
+    public String getETag() {
+        return headers.get(Headers.ETAG);
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    static long getObjectLength(HttpHeaders headers, long contentLength) {
+        String contentRange = headers.get(HttpHeaders.Names.CONTENT_RANGE);
+        if (contentRange == null) {
+            return contentLength;
+        }
+
+        return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+    }
+}
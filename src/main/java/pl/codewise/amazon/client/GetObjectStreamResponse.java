@@ -0,0 +1,61 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.Headers;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.reactivex.Flowable;
+
+/**
+ * Response of a streamed get. Content can be subscribed to only once and each emitted ByteBuf must be released by the
+ * subscriber. Connection stays acquired until whole content is consumed or subscription is cancelled, so content
+ * should always be subscribed to.
+ */
+public class GetObjectStreamResponse {
+
+    private final Flowable<ByteBuf> content;
+
+    private final long contentLength;
+    private final HttpHeaders headers;
+
+    public GetObjectStreamResponse(Flowable<ByteBuf> content, HttpHeaders headers) {
+        this.content = content;
+        this.contentLength = getContentLength(headers);
+        this.headers = headers;
+    }
+
+    public Flowable<ByteBuf> getContent() {
+        return content;
+    }
+
+    /**
+     * @return value of Content-Length header or -1 if it was not present
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return length of the whole object taken from Content-Range header if this is a response to a ranged get,
+     * otherwise the same as content length
+     */
+    public long getObjectLength() {
+        return GetObjectRangeResponse.getObjectLength(headers, contentLength);
+    }
+
+    public String getETag() {
+        return headers.get(Headers.ETAG);
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    private static long getContentLength(HttpHeaders headers) {
+        String contentLength = headers.get(HttpHeaders.Names.CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+
+        return Long.parseLong(contentLength);
+    }
+}
@@ -0,0 +1,47 @@
+package pl.codewise.amazon.client;
+
+import java.util.Arrays;
+
+/**
+ * Keeps latencies of recent requests and estimates given percentile of them. Estimate is recomputed after every
+ * {@link #RECOMPUTE_INTERVAL} samples instead of on every read.
+ */
+class LatencyTracker {
+
+    static final int SAMPLE_COUNT = 512;
+    static final int RECOMPUTE_INTERVAL = 64;
+
+    private final double percentile;
+
+    private final long[] samples = new long[SAMPLE_COUNT];
+    private int count;
+    private int next;
+    private int sinceRecompute;
+
+    private long estimate = -1;
+
+    LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % SAMPLE_COUNT;
+        count = Math.min(count + 1, SAMPLE_COUNT);
+
+        if (++sinceRecompute >= RECOMPUTE_INTERVAL) {
+            sinceRecompute = 0;
+
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            estimate = sorted[(int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1)];
+        }
+    }
+
+    /**
+     * @return latency percentile or -1 until enough samples were recorded
+     */
+    synchronized long percentileNanos() {
+        return estimate;
+    }
+}
@@ -0,0 +1,35 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.reactivex.Flowable;
+import pl.codewise.amazon.client.xml.ListResponseScanner;
+
+import java.io.IOException;
+
+/**
+ * Response of a streamed list. Object summaries are emitted as the response body is scanned and can be subscribed to
+ * only once. Connection stays acquired until all summaries are consumed or subscription is cancelled, so summaries
+ * should always be subscribed to.
+ */
+public class ListObjectsStreamResponse {
+
+    private final Flowable<S3ObjectSummary> objectSummaries;
+    private final ListResponseScanner scanner;
+
+    public ListObjectsStreamResponse(Flowable<S3ObjectSummary> objectSummaries, ListResponseScanner scanner) {
+        this.objectSummaries = objectSummaries;
+        this.scanner = scanner;
+    }
+
+    public Flowable<S3ObjectSummary> getObjectSummaries() {
+        return objectSummaries;
+    }
+
+    /**
+     * @return listing of the response without object summaries, available once all summaries were emitted
+     */
+    public ObjectListing getListing() throws IOException {
+        return scanner.getListing();
+    }
+}
@@ -0,0 +1,118 @@
+package pl.codewise.amazon.client;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+
+/**
+ * Emits consecutive pages of a listing. Request for the next page is sent as soon as the previous page arrives, before
+ * it is consumed, so that waiting for the next page overlaps with processing of the current one. At most prefetch
+ * pages are fetched beyond what the subscriber requested, one request at a time, as every page needs the marker or
+ * continuation token of the previous one.
+ */
+class ListingPager<T> implements FlowableOnSubscribe<T> {
+
+    private final Function<T, Single<T>> nextPage;
+    private final Predicate<T> truncated;
+    private final int prefetch;
+
+    private final SerialDisposable pageRequest = new SerialDisposable();
+
+    private FlowableEmitter<T> emitter;
+    private Single<T> pending;
+    private boolean fetching;
+    private long requested;
+    private long fetched;
+
+    private ListingPager(Single<T> firstPage, Function<T, Single<T>> nextPage, Predicate<T> truncated, int prefetch) {
+        this.pending = firstPage;
+        this.nextPage = nextPage;
+        this.truncated = truncated;
+        this.prefetch = prefetch;
+    }
+
+    static <T> Flowable<T> pages(Single<T> firstPage, Function<T, Single<T>> nextPage, Predicate<T> truncated, int prefetch) {
+        return Flowable.defer(() -> {
+            ListingPager<T> pager = new ListingPager<>(firstPage, nextPage, truncated, prefetch);
+            return Flowable.create(pager, BackpressureStrategy.BUFFER)
+                    .doOnRequest(pager::request);
+        });
+    }
+
+    @Override
+    public void subscribe(FlowableEmitter<T> emitter) {
+        synchronized (this) {
+            this.emitter = emitter;
+        }
+
+        emitter.setDisposable(pageRequest);
+        fetchNextPage();
+    }
+
+    private void request(long n) {
+        synchronized (this) {
+            requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+        }
+
+        fetchNextPage();
+    }
+
+    private void fetchNextPage() {
+        Single<T> page;
+        synchronized (this) {
+            if (emitter == null || fetching || pending == null || fetched - requested >= prefetch) {
+                return;
+            }
+
+            fetching = true;
+            page = pending;
+        }
+
+        page.subscribe(new SingleObserver<T>() {
+            @Override
+            public void onSubscribe(Disposable disposable) {
+                pageRequest.replace(disposable);
+            }
+
+            @Override
+            public void onSuccess(T listing) {
+                pageReceived(listing);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                emitter.onError(e);
+            }
+        });
+    }
+
+    private void pageReceived(T listing) {
+        Single<T> next;
+        try {
+            next = truncated.test(listing) ? nextPage.apply(listing) : null;
+        } catch (Exception e) {
+            emitter.onError(e);
+            return;
+        }
+
+        synchronized (this) {
+            fetching = false;
+            fetched++;
+            pending = next;
+        }
+
+        emitter.onNext(listing);
+        if (next == null) {
+            emitter.onComplete();
+        } else {
+            fetchNextPage();
+        }
+    }
+}
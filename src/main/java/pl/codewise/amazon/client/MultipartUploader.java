@@ -0,0 +1,196 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits object into parts and uploads up to configured number of them concurrently. Every part is a separate request
+ * so failed parts are retried individually (according to retry configuration of the client) instead of restarting the
+ * whole upload. If upload fails it is aborted so that Amazon can discard parts that were already uploaded.
+ * <p>
+ * Parts are produced lazily as upload slots become available so at most parallelism number of parts is kept in memory.
+ */
+class MultipartUploader {
+
+    static final int MAX_PARTS = 10_000;
+
+    private static final int MAX_PART_COMPONENTS = 4096;
+
+    private static final Comparator<PartETag> PART_NUMBER_ORDER = Comparator.comparingInt(PartETag::getPartNumber);
+
+    private final AsyncS3Client client;
+
+    private final int partSize;
+    private final int parallelism;
+
+    MultipartUploader(AsyncS3Client client, int partSize, int parallelism) {
+        this.client = client;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+    }
+
+    Single<CompleteMultipartUploadResult> upload(String bucketName, String key, ByteBuf data, ObjectMetadata metadata) {
+        int readerIndex = data.readerIndex();
+        int length = data.readableBytes();
+
+        Flowable<ByteBuf> parts = Flowable
+                .range(0, partCount(length))
+                .map(part -> {
+                    int offset = part * partSize;
+                    return data.slice(readerIndex + offset, Math.min(partSize, length - offset)).retain();
+                });
+
+        return upload(bucketName, key, metadata, uploadId -> uploadParts(bucketName, key, uploadId, parts));
+    }
+
+    /**
+     * Parts are transferred directly from the file, nothing is read into memory.
+     */
+    Single<CompleteMultipartUploadResult> upload(String bucketName, String key, Path file, ObjectMetadata metadata) {
+        return Single.defer(() -> {
+            long length = Files.size(file);
+            int partCount = partCount(length);
+            if (partCount > MAX_PARTS) {
+                return Single.error(tooManyParts());
+            }
+
+            return upload(bucketName, key, metadata, uploadId -> Flowable
+                    .range(1, partCount)
+                    .flatMapSingle(partNumber -> {
+                        long position = (long) (partNumber - 1) * partSize;
+                        return client.uploadPart(bucketName, key, uploadId, partNumber, file, position, Math.min(partSize, length - position));
+                    }, false, parallelism)
+                    .map(UploadPartResult::getPartETag)
+                    .toSortedList(PART_NUMBER_ORDER));
+        });
+    }
+
+    Single<CompleteMultipartUploadResult> uploadStream(String bucketName, String key, Flowable<ByteBuf> data, ObjectMetadata metadata) {
+        Flowable<ByteBuf> parts = Flowable.using(
+                PartAccumulator::new,
+                accumulator -> data
+                        .concatMapIterable(accumulator::add, 1)
+                        .concatWith(Flowable.defer(accumulator::remaining)),
+                PartAccumulator::release
+        );
+
+        return upload(bucketName, key, metadata, uploadId -> uploadParts(bucketName, key, uploadId, parts));
+    }
+
+    private Single<CompleteMultipartUploadResult> upload(
+            String bucketName,
+            String key,
+            ObjectMetadata metadata,
+            Function<String, Single<List<PartETag>>> partsUploader) {
+        return client.initiateMultipartUpload(bucketName, key, metadata)
+                .flatMap(initiated -> {
+                    String uploadId = initiated.getUploadId();
+
+                    return partsUploader.apply(uploadId)
+                            .flatMap(partETags -> client.completeMultipartUpload(bucketName, key, uploadId, partETags))
+                            .onErrorResumeNext(error -> client.abortMultipartUpload(bucketName, key, uploadId)
+                                    .onErrorComplete()
+                                    .andThen(Single.error(error)));
+                });
+    }
+
+    private Single<List<PartETag>> uploadParts(String bucketName, String key, String uploadId, Flowable<ByteBuf> parts) {
+        return Flowable.defer(() -> {
+            AtomicInteger partNumber = new AtomicInteger();
+
+            return parts.flatMapSingle(data -> {
+                int number = partNumber.incrementAndGet();
+                if (number > MAX_PARTS) {
+                    data.release();
+                    return Single.error(tooManyParts());
+                }
+
+                return client.uploadPart(bucketName, key, uploadId, number, data)
+                        .doFinally(data::release);
+            }, false, parallelism);
+        })
+                .map(UploadPartResult::getPartETag)
+                .toSortedList(PART_NUMBER_ORDER);
+    }
+
+    private static IllegalArgumentException tooManyParts() {
+        return new IllegalArgumentException("Object consists of more than " + MAX_PARTS + " parts, increase multipart part size");
+    }
+
+    private int partCount(long length) {
+        return (int) Math.max(1, (length + partSize - 1) / partSize);
+    }
+
+    /**
+     * Regroups arbitrary chunks into parts of configured size without copying them. Chunks that span two parts are
+     * split into slices.
+     */
+    private class PartAccumulator {
+
+        private CompositeByteBuf current = newPart();
+        private boolean emittedAny;
+
+        List<ByteBuf> add(ByteBuf chunk) {
+            List<ByteBuf> completed = Collections.emptyList();
+            try {
+                while (chunk.isReadable()) {
+                    int length = Math.min(chunk.readableBytes(), partSize - current.readableBytes());
+                    current.addComponent(true, chunk.readSlice(length).retain());
+
+                    if (current.readableBytes() == partSize) {
+                        if (completed.isEmpty()) {
+                            completed = new ArrayList<>(1);
+                        }
+
+                        completed.add(current);
+                        emittedAny = true;
+                        current = newPart();
+                    }
+                }
+            } finally {
+                chunk.release();
+            }
+
+            return completed;
+        }
+
+        Flowable<ByteBuf> remaining() {
+            ByteBuf last = current;
+            current = null;
+
+            if (last.isReadable() || !emittedAny) {
+                return Flowable.just(last);
+            }
+
+            last.release();
+            return Flowable.empty();
+        }
+
+        void release() {
+            if (current != null) {
+                current.release();
+                current = null;
+            }
+        }
+
+        private CompositeByteBuf newPart() {
+            return Unpooled.compositeBuffer(MAX_PART_COMPONENTS);
+        }
+    }
+}
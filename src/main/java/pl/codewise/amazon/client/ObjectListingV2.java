@@ -0,0 +1,54 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectListing;
+
+import java.util.List;
+
+/**
+ * Page of ListObjectsV2 presented as {@link ObjectListing}, so that listings built on pages of ListObjects can use
+ * either. It keeps the continuation token of the next page, next marker is set as ListObjects would set it, so the
+ * page can be continued with {@link AsyncS3Client#listNextBatchOfObjects(ObjectListing)} as well.
+ */
+class ObjectListingV2 extends ObjectListing {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String nextContinuationToken;
+
+    private ObjectListingV2(ListObjectsV2Result result) {
+        nextContinuationToken = result.getNextContinuationToken();
+
+        setBucketName(result.getBucketName());
+        setPrefix(result.getPrefix());
+        setDelimiter(result.getDelimiter());
+        setMaxKeys(result.getMaxKeys());
+        setMarker(result.getStartAfter());
+        setTruncated(result.isTruncated());
+        getObjectSummaries().addAll(result.getObjectSummaries());
+        getCommonPrefixes().addAll(result.getCommonPrefixes());
+
+        if (result.isTruncated()) {
+            setNextMarker(lastEntry());
+        }
+    }
+
+    static ObjectListingV2 from(ListObjectsV2Result result) {
+        return new ObjectListingV2(result);
+    }
+
+    String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    private String lastEntry() {
+        List<String> commonPrefixes = getCommonPrefixes();
+        String lastPrefix = commonPrefixes.isEmpty() ? null : commonPrefixes.get(commonPrefixes.size() - 1);
+        String lastKey = getObjectSummaries().isEmpty() ? null : getObjectSummaries().get(getObjectSummaries().size() - 1).getKey();
+
+        if (lastPrefix == null || lastKey != null && ParallelLister.compareKeys(lastKey, lastPrefix) > 0) {
+            return lastKey;
+        }
+        return lastPrefix;
+    }
+}
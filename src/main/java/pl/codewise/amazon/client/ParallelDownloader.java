@@ -0,0 +1,95 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Downloads object as a sequence of ranged GETs executed concurrently over the connection pool. First range tells
+ * the size of the object, remaining ranges are requested with If-Match on ETag of the first one so that object
+ * modified in the meantime fails the download instead of mixing two versions.
+ * <p>
+ * Parts are emitted in order. Parts received out of order wait until all preceding ones are emitted, so at most
+ * parallelism number of parts is kept in memory.
+ */
+class ParallelDownloader {
+
+    private final AsyncS3Client client;
+
+    ParallelDownloader(AsyncS3Client client) {
+        this.client = client;
+    }
+
+    Flowable<ByteBuf> download(String bucketName, String key, long partSize, int parallelism) {
+        return Flowable.using(
+                PendingParts::new,
+                pending -> client.getObjectRange(bucketName, key, 0, partSize - 1, null)
+                        .onErrorResumeNext(error -> isEmptyObject(error)
+                                ? Single.just(new GetObjectRangeResponse(Unpooled.EMPTY_BUFFER, HttpHeaders.EMPTY_HEADERS))
+                                : Single.error(error))
+                        .doOnSuccess(first -> pending.add(first.getContent()))
+                        .flatMapPublisher(first -> {
+                            long length = first.getObjectLength();
+                            if (length == 0) {
+                                return Flowable.empty();
+                            }
+
+                            long partCount = (length + partSize - 1) / partSize;
+                            Flowable<ByteBuf> remaining = Flowable
+                                    .rangeLong(1, partCount - 1)
+                                    .concatMapEager(part -> client
+                                            .getObjectRange(bucketName, key, part * partSize, Math.min(length, (part + 1) * partSize) - 1, first.getETag())
+                                            .doOnSuccess(response -> pending.add(response.getContent()))
+                                            .map(GetObjectRangeResponse::getContent)
+                                            .toFlowable(), parallelism, 1);
+
+                            return Flowable.just(first.getContent())
+                                    .concatWith(remaining);
+                        })
+                        .doOnNext(pending::remove),
+                PendingParts::releaseAll);
+    }
+
+    /**
+     * Ranged get of an empty object fails with 416 Requested Range Not Satisfiable.
+     */
+    static boolean isEmptyObject(Throwable error) {
+        return error instanceof AmazonS3Exception
+                && ((AmazonS3Exception) error).getStatusCode() == HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE.code();
+    }
+
+    /**
+     * Parts that were received but not emitted yet. They are released if download fails or is cancelled.
+     */
+    private static class PendingParts {
+
+        private final Set<ByteBuf> parts = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean released;
+
+        synchronized void add(ByteBuf part) {
+            if (released) {
+                part.release();
+            } else {
+                parts.add(part);
+            }
+        }
+
+        synchronized void remove(ByteBuf part) {
+            parts.remove(part);
+        }
+
+        synchronized void releaseAll() {
+            released = true;
+            parts.forEach(ByteBuf::release);
+            parts.clear();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.reactivex.Flowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Lists a prefix as several listings run concurrently over the connection pool, each over its own range of keys.
+ * Range starts after its marker and ends with its upper bound inclusive, as S3 lists keys after the marker. Every
+ * range is paged through on its own and its last page is cut at the upper bound.
+ * <p>
+ * Ranges are either given as split points or sampled from the first page of the listing. Sampled split points are
+ * two-character extensions of the prefix shared by all keys of the first page, so they split the keyspace at the first
+ * position where those keys diverge. Characters of the extensions are the ones seen in keys of the first page beyond
+ * the shared prefix, split points are spread evenly over the part of the keyspace after the first page. Badly guessed split points make ranges uneven, never the listing incomplete.
+ */
+class ParallelLister {
+
+    private static final int RANGES_PER_LISTING = 4;
+
+    private final AsyncS3Client client;
+
+    ParallelLister(AsyncS3Client client) {
+        this.client = client;
+    }
+
+    Flowable<S3ObjectSummary> list(String bucketName, String prefix, int parallelism, boolean sorted) {
+        return client.listObjects(listObjectsRequest(bucketName, prefix, null))
+                .flatMapPublisher(first -> {
+                    Flowable<S3ObjectSummary> firstPage = Flowable.fromIterable(first.getObjectSummaries());
+                    if (!first.isTruncated()) {
+                        return firstPage;
+                    }
+
+                    String lastKey = first.getNextMarker();
+                    List<String> splitPoints = sampleSplitPoints(prefix, lastKey, first.getObjectSummaries(),
+                            parallelism * RANGES_PER_LISTING - 1);
+                    return firstPage.concatWith(listRanges(bucketName, prefix, lastKey, splitPoints, parallelism, sorted));
+                });
+    }
+
+    Flowable<S3ObjectSummary> list(String bucketName, String prefix, List<String> splitPoints, int parallelism, boolean sorted) {
+        return Flowable.defer(() -> {
+            TreeSet<String> sortedSplitPoints = new TreeSet<>(ParallelLister::compareKeys);
+            sortedSplitPoints.addAll(splitPoints);
+
+            return listRanges(bucketName, prefix, null, new ArrayList<>(sortedSplitPoints), parallelism, sorted);
+        });
+    }
+
+    private Flowable<S3ObjectSummary> listRanges(String bucketName, String prefix, String marker,
+            List<String> splitPoints, int parallelism, boolean sorted) {
+        List<String> markers = new ArrayList<>();
+        markers.add(marker);
+        markers.addAll(splitPoints);
+
+        Flowable<Flowable<S3ObjectSummary>> ranges = Flowable.range(0, markers.size())
+                .map(i -> listRange(bucketName, prefix, markers.get(i), i + 1 < markers.size() ? markers.get(i + 1) : null));
+
+        if (sorted) {
+            return ranges.concatMapEager(range -> range, parallelism, 1);
+        }
+        return ranges.flatMap(range -> range, parallelism);
+    }
+
+    /**
+     * @param upperBound last key of the range or null if the range extends to the end of the prefix
+     */
+    private Flowable<S3ObjectSummary> listRange(String bucketName, String prefix, String marker, String upperBound) {
+        return client.listAllPages(listObjectsRequest(bucketName, prefix, marker), listing -> cutAt(listing, upperBound))
+                .concatMapIterable(ObjectListing::getObjectSummaries, 1);
+    }
+
+    private static ObjectListing cutAt(ObjectListing listing, String upperBound) {
+        if (upperBound == null) {
+            return listing;
+        }
+
+        List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+        int inRange = summaries.size();
+        while (inRange > 0 && compareKeys(summaries.get(inRange - 1).getKey(), upperBound) > 0) {
+            inRange--;
+        }
+
+        if (inRange < summaries.size() || inRange > 0 && summaries.get(inRange - 1).getKey().equals(upperBound)) {
+            summaries.subList(inRange, summaries.size()).clear();
+            listing.setTruncated(false);
+            listing.setNextMarker(null);
+        }
+
+        return listing;
+    }
+
+    static List<String> sampleSplitPoints(String prefix, String lastKey, List<S3ObjectSummary> summaries, int count) {
+        String keyPrefix = commonPrefix(prefix == null ? "" : prefix, summaries);
+
+        TreeSet<Integer> alphabet = new TreeSet<>();
+        for (S3ObjectSummary summary : summaries) {
+            String key = summary.getKey();
+            key.substring(keyPrefix.length()).codePoints().forEach(alphabet::add);
+        }
+
+        List<String> candidates = new ArrayList<>();
+        StringBuilder candidate = new StringBuilder(keyPrefix);
+        for (int first : alphabet) {
+            for (int second : alphabet) {
+                candidate.setLength(keyPrefix.length());
+                candidate.appendCodePoint(first).appendCodePoint(second);
+                if (compareKeys(candidate.toString(), lastKey) > 0) {
+                    candidates.add(candidate.toString());
+                }
+            }
+        }
+
+        if (candidates.isEmpty() || count <= 0) {
+            return Collections.emptyList();
+        }
+
+        TreeSet<String> splitPoints = new TreeSet<>(ParallelLister::compareKeys);
+        for (int i = 0; i < count; i++) {
+            splitPoints.add(candidates.get((int) ((long) i * candidates.size() / count)));
+        }
+
+        return new ArrayList<>(splitPoints);
+    }
+
+    /**
+     * @return longest prefix shared by all keys, keys of a listing all start with the listed prefix so it is never
+     * shorter than that
+     */
+    private static String commonPrefix(String prefix, List<S3ObjectSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return prefix;
+        }
+
+        String common = summaries.get(0).getKey();
+        int length = common.length();
+        for (S3ObjectSummary summary : summaries) {
+            String key = summary.getKey();
+            int i = 0;
+            while (i < length && i < key.length() && common.codePointAt(i) == key.codePointAt(i)) {
+                i += Character.charCount(common.codePointAt(i));
+            }
+            length = i;
+        }
+
+        return length < prefix.length() ? prefix : common.substring(0, length);
+    }
+
+    /**
+     * Orders keys by code points, which is the order of their UTF-8 bytes that S3 lists keys in.
+     */
+    static int compareKeys(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int a = first.codePointAt(i);
+            int b = second.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    private static ListObjectsRequest listObjectsRequest(String bucketName, String prefix, String marker) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(bucketName);
+        listObjectsRequest.setPrefix(prefix);
+        listObjectsRequest.setMarker(marker);
+        return listObjectsRequest;
+    }
+}
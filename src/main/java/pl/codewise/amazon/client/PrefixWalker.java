@@ -0,0 +1,75 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Predicate;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.UnicastProcessor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks the tree of common prefixes of a listing with delimiter. Every prefix found is queued and listed as soon as
+ * fewer than concurrency listings are running, so that all levels of the tree are listed concurrently rather than one
+ * level after another. Prefixes at maxDepth are listed without delimiter, so objects below them are emitted as well.
+ * <p>
+ * Walk completes when the last queued prefix is listed. Prefixes found on a page are queued before the listing that
+ * found them completes, so the count of prefixes not listed yet drops to zero only once there are none left.
+ */
+class PrefixWalker {
+
+    private final AsyncS3Client client;
+
+    PrefixWalker(AsyncS3Client client) {
+        this.client = client;
+    }
+
+    Flowable<S3ObjectSummary> walk(String bucketName, String root, String delimiter, int maxDepth, int concurrency,
+            Predicate<String> prefixFilter) {
+        return Flowable.defer(() -> {
+            FlowableProcessor<Prefix> prefixes = UnicastProcessor.<Prefix>create().toSerialized();
+            AtomicInteger notListed = new AtomicInteger(1);
+            prefixes.onNext(new Prefix(root, 0));
+
+            return prefixes.flatMap(prefix -> list(bucketName, prefix, delimiter, maxDepth)
+                    .doOnNext(listing -> {
+                        for (String commonPrefix : listing.getCommonPrefixes()) {
+                            if (prefixFilter.test(commonPrefix)) {
+                                notListed.incrementAndGet();
+                                prefixes.onNext(new Prefix(commonPrefix, prefix.depth + 1));
+                            }
+                        }
+                    })
+                    .concatMapIterable(ObjectListing::getObjectSummaries, 1)
+                    .doOnComplete(() -> {
+                        if (notListed.decrementAndGet() == 0) {
+                            prefixes.onComplete();
+                        }
+                    }), concurrency);
+        });
+    }
+
+    private Flowable<ObjectListing> list(String bucketName, Prefix prefix, String delimiter, int maxDepth) {
+        ListObjectsRequest listObjectsRequest = new ListObjectsRequest();
+        listObjectsRequest.setBucketName(bucketName);
+        listObjectsRequest.setPrefix(prefix.prefix);
+        if (prefix.depth < maxDepth) {
+            listObjectsRequest.setDelimiter(delimiter);
+        }
+
+        return client.listAllPages(listObjectsRequest);
+    }
+
+    private static class Prefix {
+
+        private final String prefix;
+        private final int depth;
+
+        private Prefix(String prefix, int depth) {
+            this.prefix = prefix;
+            this.depth = depth;
+        }
+    }
+}
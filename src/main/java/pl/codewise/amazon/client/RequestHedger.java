@@ -0,0 +1,132 @@
+package pl.codewise.amazon.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a second copy of a request that did not complete within the hedge delay and takes whichever response
+ * arrives first, the other copy is cancelled. Hedge delay is either fixed or follows given percentile of recent
+ * latencies, in which case the fixed delay is used until enough of them were seen.
+ * <p>
+ * Hedges are paid for from a budget: every request adds a fraction of a hedge to it and every hedge takes a whole one,
+ * so in the long run at most that fraction of requests is sent twice.
+ * <p>
+ * Failure of one copy is ignored while the other is still in flight. Failure of the request before its hedge was sent
+ * is reported right away and left to retries. Emitting the result disposes the copy that lost.
+ */
+class RequestHedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestHedger.class);
+
+    private static final double MAX_BUDGET = 10;
+
+    private final long delayNanos;
+    private final LatencyTracker latencyTracker;
+    private final double budgetPerRequest;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+
+    private double budget = MAX_BUDGET;
+
+    RequestHedger(long delayMillis, double percentile, double budgetPerRequest, Scheduler scheduler) {
+        this(delayMillis, percentile, budgetPerRequest, scheduler, System::nanoTime);
+    }
+
+    RequestHedger(long delayMillis, double percentile, double budgetPerRequest, Scheduler scheduler, LongSupplier nanoClock) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.latencyTracker = percentile > 0 ? new LatencyTracker(percentile) : null;
+        this.budgetPerRequest = budgetPerRequest;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+    }
+
+    static RequestHedger create(ClientConfiguration configuration, Scheduler scheduler) {
+        if (!configuration.isHedgingEnabled()) {
+            return null;
+        }
+
+        return new RequestHedger(configuration.getHedgeDelayMillis(), configuration.getHedgePercentile(),
+                configuration.getHedgeBudget(), scheduler);
+    }
+
+    /**
+     * @param request subscribing to it sends the request
+     * @param discard releases response of the copy that lost, if it could not be cancelled in time
+     */
+    <T> Single<T> hedge(Single<T> request, Consumer<? super T> discard) {
+        return Single.create(emitter -> {
+            addBudget();
+
+            CompositeDisposable attempts = new CompositeDisposable();
+            emitter.setDisposable(attempts);
+
+            long start = nanoClock.getAsLong();
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicInteger inFlight = new AtomicInteger(1);
+
+            Consumer<T> onSuccess = response -> {
+                if (done.compareAndSet(false, true)) {
+                    record(nanoClock.getAsLong() - start);
+                    emitter.onSuccess(response);
+                } else {
+                    discard.accept(response);
+                }
+            };
+            Consumer<Throwable> onError = error -> {
+                if (inFlight.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+                    emitter.onError(error);
+                }
+            };
+
+            attempts.add(scheduler.scheduleDirect(() -> {
+                if (done.get() || !tryTakeBudget()) {
+                    return;
+                }
+
+                LOGGER.debug("Hedging request that did not complete in {} ms", TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - start));
+                inFlight.incrementAndGet();
+                attempts.add(request.subscribe(onSuccess, onError));
+            }, currentDelayNanos(), TimeUnit.NANOSECONDS));
+            attempts.add(request.subscribe(onSuccess, onError));
+        });
+    }
+
+    private long currentDelayNanos() {
+        if (latencyTracker != null) {
+            long percentileNanos = latencyTracker.percentileNanos();
+            if (percentileNanos >= 0) {
+                return percentileNanos;
+            }
+        }
+
+        return delayNanos;
+    }
+
+    private void record(long latencyNanos) {
+        if (latencyTracker != null) {
+            latencyTracker.record(latencyNanos);
+        }
+    }
+
+    private synchronized boolean tryTakeBudget() {
+        if (budget < 1) {
+            return false;
+        }
+
+        budget -= 1;
+        return true;
+    }
+
+    private synchronized void addBudget() {
+        budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+    }
+}
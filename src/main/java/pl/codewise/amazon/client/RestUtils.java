@@ -1,6 +1,7 @@
 package pl.codewise.amazon.client;
 
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ObjectListing;
 import javolution.text.TextBuilder;
 import pl.codewise.amazon.client.utils.UTF8UrlEncoder;
@@ -15,6 +16,34 @@ public class RestUtils {
         return appendQueryString(result, objectListing.getPrefix(), objectListing.getMarker(), objectListing.getDelimiter(), objectListing.getMaxKeys());
     }
 
+    /**
+     * S3 leaves owner out of ListObjectsV2 response unless fetch-owner is set, so it is only sent when requested.
+     */
+    public static TextBuilder appendQueryString(TextBuilder result, ListObjectsV2Request listObjectsRequest) {
+        appendQueryString(result, listObjectsRequest.getPrefix(), null, listObjectsRequest.getDelimiter(), listObjectsRequest.getMaxKeys());
+
+        appendParameter(result, "list-type=", "2");
+        appendParameter(result, "continuation-token=", listObjectsRequest.getContinuationToken());
+        appendParameter(result, "start-after=", listObjectsRequest.getStartAfter());
+        if (listObjectsRequest.isFetchOwner()) {
+            appendParameter(result, "fetch-owner=", "true");
+        }
+
+        return result;
+    }
+
+    private static void appendParameter(TextBuilder result, String name, CharSequence value) {
+        if (value != null) {
+            char last = result.length() > 0 ? result.charAt(result.length() - 1) : '?';
+            if (last != '?' && last != '&') {
+                result.append("&");
+            }
+
+            result.append(name);
+            UTF8UrlEncoder.appendEncoded(result, value, 0);
+        }
+    }
+
     public static TextBuilder appendQueryString(TextBuilder result, CharSequence prefix, CharSequence marker, CharSequence delimiter, Integer maxKeys) {
         if (prefix != null) {
             result.append("prefix=");
@@ -0,0 +1,94 @@
+package pl.codewise.amazon.client;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import pl.codewise.amazon.client.http.DeadlineMissedException;
+
+/**
+ * Decides which failures are retried and how long to wait before the next attempt.
+ * <p>
+ * Connection failures, timeouts and Amazon errors that report a server side problem or throttling (5xx statuses and
+ * RequestTimeout, SlowDown and InternalError codes) are retried up to max retries. Requests that missed their deadline
+ * are not, as every retry would miss it too. Delays follow exponential backoff
+ * with decorrelated jitter: every delay is random between the base delay and three times the previous one, capped at
+ * the max delay, so clients that failed together do not retry together.
+ * <p>
+ * Retries are paid for from a budget shared by all requests of the client: every request adds a fraction of a retry
+ * to it and every retry takes a whole one. When S3 fails most requests the budget runs out and failures are reported
+ * right away, so at most that fraction of extra requests is sent instead of max retries times the traffic.
+ */
+public class RetryPolicy {
+
+    private static final double MAX_BUDGET = 100;
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final double budgetPerRequest;
+
+    private double budget = MAX_BUDGET;
+
+    /**
+     * @param budgetPerRequest fraction of requests that may be retried, 0 or less means no limit
+     */
+    public RetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis, double budgetPerRequest) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = Math.max(baseDelayMillis, maxDelayMillis);
+        this.budgetPerRequest = budgetPerRequest;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof AmazonS3Exception) {
+            AmazonS3Exception exception = (AmazonS3Exception) throwable;
+            String errorCode = exception.getErrorCode();
+
+            return exception.getStatusCode() >= 500
+                    || "RequestTimeout".equals(errorCode)
+                    || "SlowDown".equals(errorCode)
+                    || "InternalError".equals(errorCode);
+        }
+
+        if (throwable instanceof DeadlineMissedException) {
+            return false;
+        }
+
+        return throwable instanceof IOException
+                || throwable instanceof TimeoutException
+                || throwable instanceof io.netty.handler.timeout.TimeoutException
+                || throwable instanceof RejectedExecutionException;
+    }
+
+    public long nextDelayMillis(long previousDelayMillis) {
+        long upperBound = Math.min(maxDelayMillis, Math.max(baseDelayMillis, previousDelayMillis * 3));
+        return ThreadLocalRandom.current().nextLong(baseDelayMillis, upperBound + 1);
+    }
+
+    synchronized void requestStarted() {
+        budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+    }
+
+    synchronized boolean tryTakeBudget() {
+        if (budgetPerRequest <= 0) {
+            return true;
+        }
+        if (budget < 1) {
+            return false;
+        }
+
+        budget -= 1;
+        return true;
+    }
+}
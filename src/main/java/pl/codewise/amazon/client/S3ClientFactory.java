@@ -2,7 +2,6 @@ package pl.codewise.amazon.client;
 
 import io.reactivex.Scheduler;
 import io.reactivex.SingleTransformer;
-import io.reactivex.schedulers.Schedulers;
 import pl.codewise.amazon.client.http.NettyHttpClient;
 
 public class S3ClientFactory {
@@ -12,9 +11,9 @@ public class S3ClientFactory {
                 .defaultFactory()
                 .getHttpClient(configuration);
 
-        SingleTransformer transformer = createTransformerForRetryCount(
-                configuration.getMaxRetries(),
-                Schedulers.io()
+        SingleTransformer transformer = createRetryTransformer(
+                configuration,
+                httpClient.scheduler()
         );
 
         return new AsyncS3Client(
@@ -24,13 +23,20 @@ public class S3ClientFactory {
         );
     }
 
-    private static SingleTransformer createTransformerForRetryCount(
-            int maxRetries,
+    private static SingleTransformer createRetryTransformer(
+            ClientConfiguration configuration,
             Scheduler timeoutScheduler
     ) {
-        if (maxRetries > 0) {
-            return GenericS3RetryTransformer.forRetries(
-                    maxRetries,
+        if (configuration.getMaxRetries() > 0) {
+            RetryPolicy retryPolicy = new RetryPolicy(
+                    configuration.getMaxRetries(),
+                    configuration.getRetryBaseDelayMillis(),
+                    configuration.getRetryMaxDelayMillis(),
+                    configuration.getRetryBudget()
+            );
+
+            return GenericS3RetryTransformer.forPolicy(
+                    retryPolicy,
                     timeoutScheduler
             );
         }
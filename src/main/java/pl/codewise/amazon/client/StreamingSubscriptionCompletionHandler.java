@@ -0,0 +1,41 @@
+package pl.codewise.amazon.client;
+
+import io.netty.handler.codec.http.HttpResponse;
+import io.reactivex.SingleEmitter;
+import pl.codewise.amazon.client.http.HttpContentFlowable;
+import pl.codewise.amazon.client.http.Request;
+import pl.codewise.amazon.client.xml.ErrorResponseParser;
+import pl.codewise.amazon.client.xml.StreamingResponseParser;
+
+/**
+ * Completes subscriber as soon as headers of a successful response arrive, body is passed on as a flowable. Error
+ * responses are aggregated and handled just like in {@link SubscriptionCompletionHandler}.
+ */
+public class StreamingSubscriptionCompletionHandler<T> extends SubscriptionCompletionHandler<T> {
+
+    private final StreamingResponseParser<T> responseParser;
+
+    StreamingSubscriptionCompletionHandler(SingleEmitter<? super T> subscriber, Request request, StreamingResponseParser<T> responseParser, ErrorResponseParser errorResponseParser) {
+        super(subscriber, request, null, errorResponseParser);
+        this.responseParser = responseParser;
+    }
+
+    public void onResponse(HttpResponse response, HttpContentFlowable content) {
+        if (subscriber.isDisposed() || !downstreamNotified.compareAndSet(false, true)) {
+            content.cancel();
+            return;
+        }
+
+        try {
+            T result = responseParser.parse(
+                    response.getStatus(),
+                    response.headers(),
+                    content
+            );
+            subscriber.onSuccess(result);
+        } catch (Exception e) {
+            content.cancel();
+            subscriber.onError(e);
+        }
+    }
+}
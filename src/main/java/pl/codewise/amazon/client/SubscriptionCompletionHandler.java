@@ -4,6 +4,7 @@ import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.ReferenceCountUtil;
 import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.Disposable;
 import org.slf4j.Logger;
 import pl.codewise.amazon.client.http.Request;
 import pl.codewise.amazon.client.xml.ErrorResponseParser;
@@ -18,13 +19,16 @@ public class SubscriptionCompletionHandler<T> {
 
     private static final Logger LOGGER = getLogger(SubscriptionCompletionHandler.class);
 
-    private final AtomicBoolean downstreamNotified = new AtomicBoolean();
-    private final SingleEmitter<? super T> subscriber;
+    protected final AtomicBoolean downstreamNotified = new AtomicBoolean();
+    protected final SingleEmitter<? super T> subscriber;
 
-    private final Request request;
+    protected final Request request;
     private final GenericResponseParser<T> responseParser;
     private final ErrorResponseParser errorResponseParser;
 
+    private volatile Disposable exchange;
+    private volatile boolean cancelled;
+
     SubscriptionCompletionHandler(SingleEmitter<? super T> subscriber, Request request, GenericResponseParser<T> responseParser, ErrorResponseParser errorResponseParser) {
         this.subscriber = subscriber;
         this.request = request;
@@ -65,7 +69,7 @@ public class SubscriptionCompletionHandler<T> {
 
     private boolean emitExceptionIfUnsuccessful(FullHttpResponse response, SingleEmitter<?> observer) {
         HttpResponseStatus status = response.getStatus();
-        if (!status.equals(HttpResponseStatus.OK) && !status.equals(HttpResponseStatus.NO_CONTENT)) {
+        if (!isSuccessful(status)) {
             try {
                 observer.onError(
                         errorResponseParser.parse(
@@ -84,9 +88,37 @@ public class SubscriptionCompletionHandler<T> {
         return false;
     }
 
+    public static boolean isSuccessful(HttpResponseStatus status) {
+        return status.equals(HttpResponseStatus.OK)
+                || status.equals(HttpResponseStatus.NO_CONTENT)
+                || status.equals(HttpResponseStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Cancelling before the exchange was set cancels it as soon as it is.
+     */
+    void setExchange(Disposable exchange) {
+        this.exchange = exchange;
+        if (cancelled) {
+            exchange.dispose();
+        }
+    }
+
+    /**
+     * Called also when subscriber is disposed after being notified, which must not affect response that was already
+     * handed over (streamed content in particular).
+     */
     void cancel() {
-        if (!downstreamNotified.get()) {
-            LOGGER.error("Cancelled request {}", request.getUrl());
+        if (downstreamNotified.get()) {
+            return;
+        }
+
+        LOGGER.debug("Cancelled request {}", request.getUrl());
+        cancelled = true;
+
+        Disposable exchange = this.exchange;
+        if (exchange != null) {
+            exchange.dispose();
         }
     }
 }
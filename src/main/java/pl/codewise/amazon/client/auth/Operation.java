@@ -24,7 +24,11 @@ public enum Operation {
             super.getResourceName(builder, objectName);
             builder.append("?delete");
         }
-    };
+    },
+    INITIATE_MULTIPART_UPLOAD(HttpMethod.POST),
+    UPLOAD_PART(HttpMethod.PUT),
+    COMPLETE_MULTIPART_UPLOAD(HttpMethod.POST),
+    ABORT_MULTIPART_UPLOAD(HttpMethod.DELETE);
 
     private final HttpMethod httpMethod;
 
@@ -0,0 +1,105 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Limits requests in flight across all buckets with additive increase and multiplicative decrease. Every successful
+ * response raises the limit by 1 / limit, that is by one per a limit worth of responses. Throttling (503 Slow Down)
+ * or recent latency rising above latency tolerance times its long-term average cuts the limit by backoff ratio, at
+ * most once per recent average latency so that a burst of throttled responses to requests sent together counts as
+ * one signal. Failed exchanges do not change the limit.
+ * <p>
+ * Requests over the limit wait in {@link ConnectionLimiter} queue, which rejects them when it is full or they wait
+ * too long.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_TERM_SMOOTHING = 0.1;
+    private static final double LONG_TERM_SMOOTHING = 0.005;
+
+    private final ConnectionLimiter limiter;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private double limit;
+    private double shortTermLatencyNanos;
+    private double longTermLatencyNanos;
+    private long lastDecrease;
+
+    AdaptiveConcurrencyLimit(int minLimit, int maxLimit, double backoffRatio, double latencyTolerance,
+            int maxPendingRequests, long requestTimeoutMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = maxLimit;
+
+        limiter = new ConnectionLimiter(maxLimit, maxPendingRequests, requestTimeoutMillis);
+    }
+
+    Future<Void> acquire(EventExecutor executor, RequestPriority priority, long deadlineNanos) {
+        return limiter.acquire(executor, priority, deadlineNanos);
+    }
+
+    /**
+     * @param status status of the response or null if exchange failed or was abandoned
+     */
+    void release(HttpResponseStatus status, long latencyNanos) {
+        int newLimit = update(status, latencyNanos);
+        if (newLimit != limiter.limit()) {
+            limiter.setLimit(newLimit);
+        }
+
+        limiter.release();
+    }
+
+    private synchronized int update(HttpResponseStatus status, long latencyNanos) {
+        if (status == null) {
+            return (int) limit;
+        }
+
+        if (status.equals(HttpResponseStatus.SERVICE_UNAVAILABLE)) {
+            decrease();
+            return (int) limit;
+        }
+
+        if (longTermLatencyNanos == 0) {
+            shortTermLatencyNanos = latencyNanos;
+            longTermLatencyNanos = latencyNanos;
+        } else {
+            shortTermLatencyNanos += SHORT_TERM_SMOOTHING * (latencyNanos - shortTermLatencyNanos);
+            longTermLatencyNanos += LONG_TERM_SMOOTHING * (latencyNanos - longTermLatencyNanos);
+        }
+
+        if (latencyTolerance > 0 && shortTermLatencyNanos > latencyTolerance * longTermLatencyNanos) {
+            decrease();
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        return (int) limit;
+    }
+
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecrease < shortTermLatencyNanos) {
+            return;
+        }
+
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    int limit() {
+        return limiter.limit();
+    }
+
+    int inFlight() {
+        return limiter.acquired();
+    }
+}
@@ -0,0 +1,14 @@
+package pl.codewise.amazon.client.http;
+
+/**
+ * Writes request body after the headers for bodies that are not passed to the channel as a single full request.
+ */
+interface BodyWriter {
+
+    void channelWritabilityChanged();
+
+    /**
+     * @return true if writer was aborted before whole body was written
+     */
+    boolean abort();
+}
@@ -0,0 +1,79 @@
+package pl.codewise.amazon.client.http;
+
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.pool.ChannelPoolHandler;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Pool of connections of a single bucket. New connections go to the address chosen by {@link HostAddresses}, acquires
+ * wait until the host is resolved before they enter the pool, channels connected to addresses the host no longer
+ * resolves to fail the health check. Idle channels can be taken out of the
+ * pool and closed to make room for connections of other buckets.
+ */
+class BucketChannelPool extends FixedChannelPool {
+
+    private final HostAddresses addresses;
+    private final AtomicInteger openConnections;
+    private final Runnable makeRoom;
+
+    /**
+     * @param openConnections connections open or being opened by all bucket pools
+     * @param makeRoom called before a connection is opened, after it was counted as open
+     */
+    BucketChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, HostAddresses addresses, long acquireTimeoutMillis,
+            int maxConnections, int maxPendingAcquires, AtomicInteger openConnections, Runnable makeRoom) {
+        super(bootstrap, handler,
+                channel -> channel.eventLoop().newSucceededFuture(channel.isActive() && addresses.isCurrent(channel)),
+                AcquireTimeoutAction.FAIL, acquireTimeoutMillis, maxConnections, maxPendingAcquires);
+
+        this.addresses = addresses;
+        this.openConnections = openConnections;
+        this.makeRoom = makeRoom;
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        addresses.resolved().subscribe(() -> super.acquire(promise), promise::tryFailure);
+        return promise;
+    }
+
+    @Override
+    protected ChannelFuture connectChannel(Bootstrap bs) {
+        openConnections.incrementAndGet();
+        makeRoom.run();
+
+        SocketAddress remoteAddress = addresses.nextAddress();
+        bs.remoteAddress(remoteAddress);
+
+        ChannelFuture connectFuture = super.connectChannel(bs);
+        connectFuture.channel().closeFuture().addListener(future -> openConnections.decrementAndGet());
+
+        return connectFuture.addListener((ChannelFuture future) -> {
+            if (future.isSuccess()) {
+                addresses.connected(future.channel());
+            } else {
+                addresses.connectFailed(remoteAddress);
+            }
+        });
+    }
+
+    /**
+     * @return false if there was no idle channel to close
+     */
+    boolean closeIdleChannel() {
+        Channel channel = pollChannel();
+        if (channel == null) {
+            return false;
+        }
+
+        channel.close();
+        return true;
+    }
+}
@@ -0,0 +1,269 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Caps the number of connections acquired from all pools together. Acquires above the cap wait until a connection is
+ * released, at most maxPendingAcquires of them and no longer than acquireTimeoutMillis. They are served in
+ * {@link RequestPriority} order. Acquire with a deadline fails as soon as the deadline passes, also when it would not
+ * have to wait.
+ * <p>
+ * The cap can be changed at runtime, lowering it below the number of acquired connections only holds back new
+ * acquires until enough connections are released.
+ */
+class ConnectionLimiter {
+
+    private static final double WAIT_TIME_SMOOTHING = 0.2;
+
+    private final int maxPendingAcquires;
+    private final long acquireTimeoutMillis;
+
+    private final Queue<PendingAcquire> pendingAcquires = new PriorityQueue<>();
+    private long sequence;
+    private int limit;
+    private int acquired;
+    private int peakAcquired;
+
+    private double averageWaitNanos;
+
+    private volatile IntConsumer queuedListener = pending -> {
+    };
+
+    ConnectionLimiter(int limit, int maxPendingAcquires, long acquireTimeoutMillis) {
+        this.limit = limit;
+        this.maxPendingAcquires = maxPendingAcquires;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    Future<Void> acquire(EventExecutor executor) {
+        return acquire(executor, RequestPriority.NORMAL, 0);
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} by which the permit must be granted or 0 if there is no deadline
+     */
+    Future<Void> acquire(EventExecutor executor, RequestPriority priority, long deadlineNanos) {
+        Promise<Void> promise = executor.newPromise();
+
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        if (deadlineNanos != 0) {
+            if (deadlineNanos - now <= 0) {
+                return promise.setFailure(deadlineMissed());
+            }
+            timeoutNanos = Math.min(timeoutNanos, deadlineNanos - now);
+        }
+
+        boolean granted;
+        int pending = 0;
+        synchronized (this) {
+            granted = acquired < limit && pendingAcquires.isEmpty();
+            if (granted) {
+                grant();
+                recordWait(0);
+            } else if (pendingAcquires.size() >= maxPendingAcquires) {
+                return promise.setFailure(new IllegalStateException("Too many outstanding acquire operations"));
+            } else {
+                PendingAcquire pendingAcquire = new PendingAcquire(promise, now, priority, deadlineNanos, sequence++);
+                pendingAcquires.add(pendingAcquire);
+                pending = pendingAcquires.size();
+
+                pendingAcquire.timeout = executor.schedule(() -> timeout(pendingAcquire), timeoutNanos, TimeUnit.NANOSECONDS);
+                promise.addListener(future -> {
+                    if (future.isCancelled()) {
+                        cancel(pendingAcquire);
+                    }
+                });
+            }
+        }
+
+        if (granted) {
+            promise.setSuccess(null);
+        } else if (pending > 0) {
+            queuedListener.accept(pending);
+        }
+
+        return promise;
+    }
+
+    void release() {
+        List<PendingAcquire> granted;
+        synchronized (this) {
+            acquired--;
+            granted = grantPending();
+        }
+
+        complete(granted);
+    }
+
+    void setLimit(int limit) {
+        List<PendingAcquire> granted;
+        synchronized (this) {
+            this.limit = limit;
+            granted = grantPending();
+        }
+
+        complete(granted);
+    }
+
+    /**
+     * @param queuedListener called with the number of pending acquires whenever an acquire has to wait, outside of
+     *                       the lock of the limiter
+     */
+    void setQueuedListener(IntConsumer queuedListener) {
+        this.queuedListener = queuedListener;
+    }
+
+    synchronized int limit() {
+        return limit;
+    }
+
+    synchronized int acquired() {
+        return acquired;
+    }
+
+    synchronized int pendingAcquires() {
+        return pendingAcquires.size();
+    }
+
+    /**
+     * @return exponentially smoothed time acquires waited for a permit, including those that did not wait at all
+     */
+    synchronized long averageWaitNanos() {
+        return (long) averageWaitNanos;
+    }
+
+    /**
+     * @return time the oldest pending acquire is already waiting or 0 if there is none
+     */
+    synchronized long oldestPendingWaitNanos(long now) {
+        long oldestWait = 0;
+        for (PendingAcquire pendingAcquire : pendingAcquires) {
+            oldestWait = Math.max(oldestWait, now - pendingAcquire.enqueuedAt);
+        }
+
+        return oldestWait;
+    }
+
+    /**
+     * @return highest number of connections acquired at once since previous call
+     */
+    synchronized int resetPeakAcquired() {
+        int peak = peakAcquired;
+        peakAcquired = acquired;
+        return peak;
+    }
+
+    private List<PendingAcquire> grantPending() {
+        if (pendingAcquires.isEmpty() || acquired >= limit) {
+            return Collections.emptyList();
+        }
+
+        long now = System.nanoTime();
+        List<PendingAcquire> granted = new ArrayList<>();
+        while (acquired < limit && !pendingAcquires.isEmpty()) {
+            PendingAcquire next = pendingAcquires.poll();
+            grant();
+            recordWait(now - next.enqueuedAt);
+
+            granted.add(next);
+        }
+
+        return granted;
+    }
+
+    private void grant() {
+        acquired++;
+        peakAcquired = Math.max(peakAcquired, acquired);
+    }
+
+    private void recordWait(long waitNanos) {
+        averageWaitNanos += WAIT_TIME_SMOOTHING * (waitNanos - averageWaitNanos);
+    }
+
+    /**
+     * Acquire that was cancelled in the meantime gives its permit back.
+     */
+    private void complete(List<PendingAcquire> granted) {
+        for (PendingAcquire pendingAcquire : granted) {
+            pendingAcquire.timeout.cancel(false);
+            if (!pendingAcquire.promise.trySuccess(null)) {
+                release();
+            }
+        }
+    }
+
+    private synchronized void cancel(PendingAcquire pendingAcquire) {
+        if (pendingAcquires.remove(pendingAcquire)) {
+            pendingAcquire.timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Fires at the deadline of the acquire if it comes before the acquire timeout.
+     */
+    private void timeout(PendingAcquire pendingAcquire) {
+        synchronized (this) {
+            if (!pendingAcquires.remove(pendingAcquire)) {
+                return;
+            }
+        }
+
+        long deadlineNanos = pendingAcquire.deadlineNanos;
+        if (deadlineNanos != 0 && deadlineNanos - pendingAcquire.enqueuedAt <= TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis)) {
+            pendingAcquire.promise.tryFailure(deadlineMissed());
+        } else {
+            pendingAcquire.promise.tryFailure(new TimeoutException("Acquire operation took longer then configured maximum time"));
+        }
+    }
+
+    private static DeadlineMissedException deadlineMissed() {
+        return new DeadlineMissedException("Request missed its deadline before it could acquire a connection");
+    }
+
+    private static class PendingAcquire implements Comparable<PendingAcquire> {
+
+        private final Promise<Void> promise;
+        private final long enqueuedAt;
+        private final RequestPriority priority;
+        private final long deadlineNanos;
+        private final long sequence;
+
+        private ScheduledFuture<?> timeout;
+
+        private PendingAcquire(Promise<Void> promise, long enqueuedAt, RequestPriority priority, long deadlineNanos, long sequence) {
+            this.promise = promise;
+            this.enqueuedAt = enqueuedAt;
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PendingAcquire other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            if (deadlineNanos != other.deadlineNanos) {
+                if (deadlineNanos == 0 || other.deadlineNanos == 0) {
+                    return deadlineNanos == 0 ? 1 : -1;
+                }
+                return Long.signum(deadlineNanos - other.deadlineNanos);
+            }
+
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
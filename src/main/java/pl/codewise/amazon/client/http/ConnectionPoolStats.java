@@ -0,0 +1,53 @@
+package pl.codewise.amazon.client.http;
+
+/**
+ * Snapshot of the connection limit shared by all buckets.
+ */
+public class ConnectionPoolStats {
+
+    private final int connectionLimit;
+    private final int acquiredConnections;
+    private final int pendingAcquires;
+    private final long averageAcquireWaitMicros;
+    private final long oldestPendingAcquireWaitMicros;
+
+    public ConnectionPoolStats(
+            int connectionLimit,
+            int acquiredConnections,
+            int pendingAcquires,
+            long averageAcquireWaitMicros,
+            long oldestPendingAcquireWaitMicros) {
+        this.connectionLimit = connectionLimit;
+        this.acquiredConnections = acquiredConnections;
+        this.pendingAcquires = pendingAcquires;
+        this.averageAcquireWaitMicros = averageAcquireWaitMicros;
+        this.oldestPendingAcquireWaitMicros = oldestPendingAcquireWaitMicros;
+    }
+
+    /**
+     * @return current pool size, constant unless elastic pool size is configured
+     */
+    public int getConnectionLimit() {
+        return connectionLimit;
+    }
+
+    public int getAcquiredConnections() {
+        return acquiredConnections;
+    }
+
+    public int getPendingAcquires() {
+        return pendingAcquires;
+    }
+
+    /**
+     * @return exponentially smoothed time spent waiting for a connection, acquires that did not wait count as zero
+     */
+    public long getAverageAcquireWaitMicros() {
+        return averageAcquireWaitMicros;
+    }
+
+    public long getOldestPendingAcquireWaitMicros() {
+        return oldestPendingAcquireWaitMicros;
+    }
+
+}
@@ -0,0 +1,16 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Request missed its deadline before it was sent. Retrying it would only miss the deadline again, so it is never
+ * retried.
+ */
+public class DeadlineMissedException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineMissedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adjusts the limit of {@link ConnectionLimiter} between min and max connections. The limit grows by the number of
+ * waiting acquires when there are too many of them or the oldest one waits too long. Both are checked as soon as
+ * acquires start to wait, so an idle client is only checked once every check interval. When the limit did not have to
+ * grow for a whole shrink delay it is lowered to the highest number of connections used at once during that time.
+ * Connections above the limit are not closed here, they stay idle in bucket pools until the idle connection handler
+ * closes them.
+ */
+class ElasticPoolSizer implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticPoolSizer.class);
+
+    static final long CHECK_INTERVAL_MILLIS = 500;
+
+    private final ConnectionLimiter limiter;
+
+    private final int minConnections;
+    private final int maxConnections;
+    private final int growthPendingAcquires;
+    private final long growthWaitNanos;
+    private final long shrinkDelayNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+
+    private long periodStart;
+
+    ElasticPoolSizer(ConnectionLimiter limiter, int minConnections, int maxConnections, int growthPendingAcquires,
+            long growthWaitMillis, long shrinkDelayMillis) {
+        this(limiter, minConnections, maxConnections, growthPendingAcquires, growthWaitMillis, shrinkDelayMillis, System::nanoTime);
+    }
+
+    ElasticPoolSizer(ConnectionLimiter limiter, int minConnections, int maxConnections, int growthPendingAcquires,
+            long growthWaitMillis, long shrinkDelayMillis, LongSupplier nanoClock) {
+        this.limiter = limiter;
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.growthPendingAcquires = growthPendingAcquires;
+        this.growthWaitNanos = TimeUnit.MILLISECONDS.toNanos(growthWaitMillis);
+        this.shrinkDelayNanos = TimeUnit.MILLISECONDS.toNanos(shrinkDelayMillis);
+        this.nanoClock = nanoClock;
+        this.periodStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * Checks the pool once every check interval and whenever acquires start to wait: right away when too many of them
+     * wait, and after the growth wait when the first one does.
+     *
+     * @return disposing it stops the checks
+     */
+    Disposable start(Scheduler scheduler) {
+        limiter.setQueuedListener(pending -> {
+            if (pending > growthPendingAcquires) {
+                if (checkScheduled.compareAndSet(false, true)) {
+                    scheduler.scheduleDirect(this);
+                }
+            } else if (pending == 1) {
+                scheduler.scheduleDirect(this, growthWaitNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+
+        Disposable periodicCheck = scheduler.schedulePeriodicallyDirect(this, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        return Disposables.fromAction(() -> {
+            limiter.setQueuedListener(pending -> {
+            });
+            periodicCheck.dispose();
+        });
+    }
+
+    @Override
+    public synchronized void run() {
+        checkScheduled.set(false);
+
+        long now = nanoClock.getAsLong();
+        int limit = limiter.limit();
+        int pending = limiter.pendingAcquires();
+
+        if (pending > 0 && limit < maxConnections
+                && (pending > growthPendingAcquires || limiter.oldestPendingWaitNanos(now) >= growthWaitNanos)) {
+            int newLimit = Math.min(maxConnections, limit + pending);
+            LOGGER.debug("Growing connection pool from {} to {}, {} acquires pending", limit, newLimit, pending);
+
+            limiter.setLimit(newLimit);
+            limiter.resetPeakAcquired();
+            periodStart = now;
+            return;
+        }
+
+        if (now - periodStart >= shrinkDelayNanos) {
+            int peak = limiter.resetPeakAcquired();
+            int newLimit = Math.max(minConnections, peak);
+            if (pending == 0 && newLimit < limit) {
+                LOGGER.debug("Shrinking connection pool from {} to {}", limit, newLimit);
+                limiter.setLimit(newLimit);
+            }
+            periodStart = now;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pl.codewise.amazon.client.http;
+
+import java.io.File;
+
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Writes a region of a file as request body using {@link DefaultFileRegion}, so the transport can transfer it with
+ * sendfile without copying the content into Java buffers. File is opened lazily by the region and closed once it is
+ * written or the write fails.
+ */
+class FileBodyWriter implements BodyWriter {
+
+    private final Channel channel;
+    private final HttpClientHandler httpClientHandler;
+
+    private final File file;
+    private final long position;
+    private final long length;
+
+    private boolean completed;
+    private boolean aborted;
+
+    FileBodyWriter(Channel channel, HttpClientHandler httpClientHandler, File file, long position, long length) {
+        this.channel = channel;
+        this.httpClientHandler = httpClientHandler;
+        this.file = file;
+        this.position = position;
+        this.length = length;
+    }
+
+    void write() {
+        channel.write(new DefaultFileRegion(file, position, length))
+                .addListener(this::checkWriteResult);
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT)
+                .addListener(future -> {
+                    checkWriteResult(future);
+                    completed = future.isSuccess();
+                });
+    }
+
+    @Override
+    public void channelWritabilityChanged() {
+    }
+
+    @Override
+    public boolean abort() {
+        if (completed || aborted) {
+            return false;
+        }
+
+        aborted = true;
+        return true;
+    }
+
+    private void checkWriteResult(Future<?> future) {
+        if (!future.isSuccess() && !aborted) {
+            aborted = true;
+            httpClientHandler.exceptionCaught(channel, future.cause());
+        }
+    }
+}
@@ -1,56 +1,116 @@
 package pl.codewise.amazon.client.http;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Every channel has a FIFO queue of handlers of requests written to it and not answered yet. There is at most one of
+ * them unless requests are pipelined. Response parts go to the head of the queue, which is removed with the last part
+ * of the response. Failure of the channel fails all queued handlers.
+ * <p>
+ * Queues are accessed from the event loop of the channel only.
+ */
 @ChannelHandler.Sharable
-class HandlerDemultiplexer extends SimpleChannelInboundHandler<FullHttpResponse> {
+class HandlerDemultiplexer extends SimpleChannelInboundHandler<HttpObject> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HandlerDemultiplexer.class);
 
-    private static final AttributeKey<HttpClientHandler> HANDLER_ATTRIBUTE_KEY = AttributeKey.valueOf("handler");
+    private static final AttributeKey<Deque<HttpClientHandler>> HANDLERS_ATTRIBUTE_KEY = AttributeKey.valueOf("handlers");
 
     HandlerDemultiplexer() {
         super(false);
     }
 
-    void setAttributeValue(Channel channel, HttpClientHandler handler) {
-        channel.attr(HANDLER_ATTRIBUTE_KEY).set(handler);
+    void addHandler(Channel channel, HttpClientHandler handler) {
+        Attribute<Deque<HttpClientHandler>> attribute = channel.attr(HANDLERS_ATTRIBUTE_KEY);
+        Deque<HttpClientHandler> handlers = attribute.get();
+        if (handlers == null) {
+            handlers = new ArrayDeque<>(1);
+            attribute.set(handlers);
+        }
+
+        handlers.add(handler);
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
-        HttpClientHandler httpClientHandler = ctx.channel().attr(HANDLER_ATTRIBUTE_KEY).get();
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        Deque<HttpClientHandler> handlers = ctx.channel().attr(HANDLERS_ATTRIBUTE_KEY).get();
+        HttpClientHandler httpClientHandler = handlers == null ? null : handlers.peek();
         if (httpClientHandler != null) {
+            if (msg instanceof HttpResponse) {
+                httpClientHandler.responseStarted((HttpResponse) msg);
+            }
+            if (msg instanceof LastHttpContent) {
+                handlers.poll();
+            }
+
             httpClientHandler.channelRead(ctx, msg);
         } else {
             LOGGER.error("No handler for channelRead0");
+            ReferenceCountUtil.release(msg);
         }
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-        HttpClientHandler httpClientHandler = ctx.channel().attr(HANDLER_ATTRIBUTE_KEY).get();
-        if (httpClientHandler != null) {
-            httpClientHandler.exceptionCaught(ctx.channel(), cause);
+        List<HttpClientHandler> handlers = removeHandlers(ctx.channel());
+        if (!handlers.isEmpty()) {
+            handlers.forEach(handler -> handler.exceptionCaught(ctx.channel(), cause));
         } else {
             super.exceptionCaught(ctx, cause);
         }
     }
 
+    /**
+     * Only the last request written to the channel may still be writing its body.
+     */
     @Override
-    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        HttpClientHandler httpClientHandler = ctx.channel().attr(HANDLER_ATTRIBUTE_KEY).get();
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Deque<HttpClientHandler> handlers = ctx.channel().attr(HANDLERS_ATTRIBUTE_KEY).get();
+        HttpClientHandler httpClientHandler = handlers == null ? null : handlers.peekLast();
         if (httpClientHandler != null) {
-            httpClientHandler.channelInactive(ctx);
+            httpClientHandler.channelWritabilityChanged(ctx);
+        }
+
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        List<HttpClientHandler> handlers = removeHandlers(ctx.channel());
+        if (!handlers.isEmpty()) {
+            for (HttpClientHandler handler : handlers) {
+                handler.channelInactive(ctx);
+            }
         } else {
             super.channelInactive(ctx);
         }
     }
+
+    private List<HttpClientHandler> removeHandlers(Channel channel) {
+        Deque<HttpClientHandler> handlers = channel.attr(HANDLERS_ATTRIBUTE_KEY).get();
+        if (handlers == null || handlers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<HttpClientHandler> removed = new ArrayList<>(handlers);
+        handlers.clear();
+        return removed;
+    }
 }
@@ -0,0 +1,236 @@
+package pl.codewise.amazon.client.http;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * All addresses a host name resolves to. Amazon hands out many front-end addresses for S3 endpoints, so instead of
+ * connecting wherever the first resolved address points to, new connections go to the address with the fewest open
+ * connections. Address that failed recently is avoided for a while, so retried request reaches a different one.
+ * <p>
+ * Addresses are refreshed periodically, connections to addresses that are no longer resolved are reported as not
+ * current and retired by the pool health check.
+ * <p>
+ * Resolution blocks, so it runs on the given scheduler and pools wait for {@link #resolved()} before they connect,
+ * instead of resolving on the event loop that acquires a connection.
+ */
+class HostAddresses {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostAddresses.class);
+
+    private static final AttributeKey<HostAddresses> HOST_ADDRESSES_ATTRIBUTE_KEY = AttributeKey.valueOf("hostAddresses");
+
+    private static final long FAILED_ADDRESS_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final String host;
+    private final int port;
+    private final Resolver resolver;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoClock;
+
+    private final Map<InetAddress, AtomicInteger> connections = new ConcurrentHashMap<>();
+    private final Map<InetAddress, Long> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    private volatile List<InetAddress> addresses = Collections.emptyList();
+    private Completable resolution;
+
+    HostAddresses(String host, int port, Scheduler scheduler) {
+        this(host, port, InetAddress::getAllByName, scheduler, System::nanoTime);
+    }
+
+    HostAddresses(String host, int port, Resolver resolver, Scheduler scheduler, LongSupplier nanoClock) {
+        this.host = host;
+        this.port = port;
+        this.resolver = resolver;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+
+        resolved();
+    }
+
+    /**
+     * Completes once the host has addresses. If it has none yet, a resolution is started on the scheduler unless one
+     * is already running, so a host that failed to resolve is resolved again by the next connection attempt.
+     */
+    Completable resolved() {
+        if (!addresses.isEmpty()) {
+            return Completable.complete();
+        }
+
+        synchronized (this) {
+            Completable pending = resolution;
+            if (pending == null) {
+                pending = Completable.fromAction(this::resolve)
+                        .subscribeOn(scheduler)
+                        .doFinally(this::resolutionFinished)
+                        .cache();
+                resolution = pending;
+                pending.onErrorComplete().subscribe();
+            }
+
+            return pending;
+        }
+    }
+
+    private synchronized void resolutionFinished() {
+        resolution = null;
+    }
+
+    /**
+     * Resolves the host again, blocking the calling thread. If resolution fails previously resolved addresses are
+     * kept.
+     */
+    void refresh() {
+        try {
+            resolve();
+        } catch (UnknownHostException e) {
+            LOGGER.warn("Unable to resolve {}, keeping addresses {}", host, addresses, e);
+        }
+    }
+
+    private void resolve() throws UnknownHostException {
+        List<InetAddress> resolved = preferIpV4(resolver.resolve(host));
+        if (resolved.isEmpty()) {
+            throw new UnknownHostException(host);
+        }
+
+        if (!resolved.equals(addresses)) {
+            LOGGER.debug("Host {} resolved to {}", host, resolved);
+            addresses = resolved;
+        }
+    }
+
+    /**
+     * Never resolves the host, if it has no addresses yet the returned address is unresolved and connecting to it
+     * fails.
+     */
+    SocketAddress nextAddress() {
+        InetAddress address = selectAddress();
+        if (address == null) {
+            return InetSocketAddress.createUnresolved(host, port);
+        }
+
+        return new InetSocketAddress(address, port);
+    }
+
+    void connected(Channel channel) {
+        channel.attr(HOST_ADDRESSES_ATTRIBUTE_KEY).set(this);
+
+        InetAddress address = remoteAddress(channel);
+        if (address != null) {
+            AtomicInteger counter = connections.computeIfAbsent(address, key -> new AtomicInteger());
+            counter.incrementAndGet();
+            channel.closeFuture().addListener(future -> counter.decrementAndGet());
+        }
+    }
+
+    void connectFailed(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress && ((InetSocketAddress) remoteAddress).getAddress() != null) {
+            failures.put(((InetSocketAddress) remoteAddress).getAddress(), nanoClock.getAsLong());
+        }
+    }
+
+    /**
+     * @return false if channel is connected to an address that host no longer resolves to
+     */
+    boolean isCurrent(Channel channel) {
+        InetAddress address = remoteAddress(channel);
+        return address == null || addresses.isEmpty() || addresses.contains(address);
+    }
+
+    /**
+     * Makes new connections avoid the address of given channel for a while.
+     */
+    static void channelFailed(Channel channel) {
+        HostAddresses hostAddresses = channel.attr(HOST_ADDRESSES_ATTRIBUTE_KEY).get();
+        InetAddress address = remoteAddress(channel);
+
+        if (hostAddresses != null && address != null) {
+            hostAddresses.failures.put(address, hostAddresses.nanoClock.getAsLong());
+        }
+    }
+
+    private InetAddress selectAddress() {
+        List<InetAddress> candidates = addresses;
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        long now = nanoClock.getAsLong();
+        int offset = Math.abs(rotation.getAndIncrement() % candidates.size());
+
+        InetAddress selected = null;
+        int selectedConnections = Integer.MAX_VALUE;
+        boolean selectedFailed = true;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            InetAddress candidate = candidates.get((offset + i) % candidates.size());
+
+            Long failedAt = failures.get(candidate);
+            boolean failed = failedAt != null && now - failedAt < FAILED_ADDRESS_BACKOFF_NANOS;
+            AtomicInteger counter = connections.get(candidate);
+            int candidateConnections = counter == null ? 0 : counter.get();
+
+            if ((selectedFailed && !failed) || (selectedFailed == failed && candidateConnections < selectedConnections)) {
+                selected = candidate;
+                selectedConnections = candidateConnections;
+                selectedFailed = failed;
+            }
+        }
+
+        return selected;
+    }
+
+    private static InetAddress remoteAddress(Channel channel) {
+        SocketAddress remoteAddress = channel.remoteAddress();
+        if (remoteAddress instanceof InetSocketAddress) {
+            return ((InetSocketAddress) remoteAddress).getAddress();
+        }
+
+        return null;
+    }
+
+    /**
+     * Uses IPv6 addresses only if there are no IPv4 ones (or JVM is configured to prefer IPv6), the same way a single
+     * address would have been chosen.
+     */
+    private static List<InetAddress> preferIpV4(InetAddress[] resolved) {
+        if (Boolean.getBoolean("java.net.preferIPv6Addresses")) {
+            return Arrays.asList(resolved);
+        }
+
+        List<InetAddress> ipV4 = new ArrayList<>(resolved.length);
+        for (InetAddress address : resolved) {
+            if (address instanceof Inet4Address) {
+                ipV4.add(address);
+            }
+        }
+
+        return ipV4.isEmpty() ? Arrays.asList(resolved) : ipV4;
+    }
+
+    interface Resolver {
+
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+}
@@ -1,55 +1,314 @@
 package pl.codewise.amazon.client.http;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaders;
-import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.reactivex.disposables.Disposable;
 import pl.codewise.amazon.client.SubscriptionCompletionHandler;
 
-class HttpClientHandler {
+/**
+ * Aggregates response parts into a single FullHttpResponse (in place of HttpObjectAggregator that used to be part of
+ * every pipeline) and hands it to the completion handler.
+ * <p>
+ * Disposing the handler abandons the exchange without notifying the completion handler. Acquire that is still pending
+ * is cancelled. Request in flight either has the rest of its response discarded as it arrives, if the connection is
+ * shared with pipelined requests or little of the response is left, or has its connection closed.
+ * <p>
+ * Request admitted by {@link AdaptiveConcurrencyLimit} returns its permit together with the connection, reporting
+ * response status or null if the exchange failed.
+ */
+class HttpClientHandler implements Disposable {
+
+    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final int MAX_RESPONSE_SIZE = 1200 * BYTES_IN_MEGABYTE;
+    private static final int MAX_COMPOSITE_BUFFER_COMPONENTS = 1024;
+    private static final int MAX_DISCARDED_BYTES = 64 * 1024;
 
     private final ChannelPool channelPool;
     private final SubscriptionCompletionHandler completionHandler;
 
+    private final AtomicBoolean disposed = new AtomicBoolean();
+    private volatile Future<?> acquireFuture;
+    private volatile Channel channel;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private long permitAcquiredAt;
+    private HttpResponseStatus responseStatus;
+
     private boolean channelReleased;
+    private BodyWriter bodyWriter;
+
+    private boolean sent;
+    private boolean completed;
+    private boolean discarding;
+    private boolean keepAlive = true;
+
+    private HttpResponse response;
+    private CompositeByteBuf content;
 
     HttpClientHandler(ChannelPool channelPool, SubscriptionCompletionHandler completionHandler) {
         this.channelPool = channelPool;
         this.completionHandler = completionHandler;
     }
 
-    void channelRead(ChannelHandlerContext ctx, FullHttpResponse msg) {
-        if (!HttpHeaders.isKeepAlive(msg)) {
-            ctx.close();
+    void channelRead(ChannelHandlerContext ctx, HttpObject msg) {
+        if (discarding) {
+            discard(ctx, msg);
+            return;
+        }
+
+        if (msg.getDecoderResult().isFailure()) {
+            ReferenceCountUtil.release(msg);
+            exceptionCaught(ctx.channel(), msg.getDecoderResult().cause());
+            return;
+        }
+
+        if (msg instanceof HttpResponse) {
+            response = (HttpResponse) msg;
+            content = ctx.alloc().compositeBuffer(MAX_COMPOSITE_BUFFER_COMPONENTS);
+        }
+
+        if (msg instanceof HttpContent) {
+            aggregate(ctx, (HttpContent) msg);
         }
+    }
+
+    private void aggregate(ChannelHandlerContext ctx, HttpContent chunk) {
+        if (content == null) {
+            chunk.release();
+            return;
+        }
+
+        if (content.readableBytes() > MAX_RESPONSE_SIZE - chunk.content().readableBytes()) {
+            chunk.release();
+            exceptionCaught(ctx.channel(), new TooLongFrameException("Response is larger than " + MAX_RESPONSE_SIZE + " bytes"));
+            return;
+        }
+
+        content.addComponent(true, chunk.content());
 
-        channelReleased = true;
-        channelPool.release(ctx.channel());
+        if (chunk instanceof LastHttpContent) {
+            FullHttpResponse fullResponse = new DefaultFullHttpResponse(response.getProtocolVersion(), response.getStatus(), content);
+            fullResponse.headers().set(response.headers());
+            fullResponse.trailingHeaders().set(((LastHttpContent) chunk).trailingHeaders());
 
+            response = null;
+            content = null;
+
+            responseReceived(ctx, fullResponse);
+        }
+    }
+
+    private void responseReceived(ChannelHandlerContext ctx, FullHttpResponse msg) {
+        completed = true;
+        if (!HttpHeaders.isKeepAlive(msg) || abortBodyWriter()) {
+            ctx.close();
+        }
+
+        releaseChannel(ctx.channel());
         completionHandler.onSuccess(msg);
     }
 
+    private void discard(ChannelHandlerContext ctx, HttpObject msg) {
+        if (msg instanceof HttpResponse) {
+            keepAlive = HttpHeaders.isKeepAlive((HttpResponse) msg);
+        }
+
+        ReferenceCountUtil.release(msg);
+        if (msg instanceof LastHttpContent) {
+            completed = true;
+            if (!keepAlive) {
+                ctx.close();
+            }
+
+            releaseChannel(ctx.channel());
+        }
+    }
+
+    void setBodyWriter(BodyWriter bodyWriter) {
+        this.bodyWriter = bodyWriter;
+    }
+
+    void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (bodyWriter != null) {
+            bodyWriter.channelWritabilityChanged();
+        }
+    }
+
+    /**
+     * Server may respond (usually with an error) before whole request body was sent. Connection cannot be reused
+     * then.
+     *
+     * @return true if body was still being written
+     */
+    protected boolean abortBodyWriter() {
+        return bodyWriter != null && bodyWriter.abort();
+    }
+
+    void acquireStarted(Future<?> acquireFuture) {
+        this.acquireFuture = acquireFuture;
+    }
+
+    void permitAcquired(AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.permitAcquiredAt = System.nanoTime();
+    }
+
+    void acquireFailed(Throwable cause) {
+        releasePermit();
+        if (!isDisposed()) {
+            completionHandler.onError(cause);
+        }
+    }
+
+    void acquireCancelled() {
+        releasePermit();
+    }
+
+    /**
+     * Called before the request is sent. Thread disposing the handler either sees the channel or the handler
+     * being disposed is seen by {@link #requestSent()}.
+     */
+    void channelAcquired(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @return false if handler was disposed in the meantime and request should not be sent
+     */
+    boolean requestSent() {
+        if (isDisposed()) {
+            completed = true;
+            releaseChannel(channel);
+            return false;
+        }
+
+        sent = true;
+        return true;
+    }
+
+    @Override
+    public void dispose() {
+        if (!disposed.compareAndSet(false, true)) {
+            return;
+        }
+
+        Future<?> acquireFuture = this.acquireFuture;
+        if (acquireFuture != null && acquireFuture.cancel(false)) {
+            return;
+        }
+
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.eventLoop().execute(() -> abandon(channel));
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed.get();
+    }
+
+    boolean isDiscarding() {
+        return discarding;
+    }
+
+    void responseStarted(HttpResponse response) {
+        responseStatus = response.getStatus();
+    }
+
+    private void abandon(Channel channel) {
+        if (!sent || completed || discarding) {
+            return;
+        }
+
+        if (bodyWriter == null && (channelPool instanceof PipeliningChannelPool || fewBytesLeft())) {
+            if (response != null) {
+                keepAlive = HttpHeaders.isKeepAlive(response);
+            }
+
+            discardAggregatedContent();
+            discarding = true;
+        } else {
+            channel.close();
+        }
+    }
+
+    private boolean fewBytesLeft() {
+        return response != null
+                && HttpHeaders.getContentLength(response, Long.MAX_VALUE) - content.readableBytes() <= MAX_DISCARDED_BYTES;
+    }
+
     void exceptionCaught(Channel channel, Throwable cause) {
+        if (cause instanceof IOException && !isDisposed()) {
+            HostAddresses.channelFailed(channel);
+        }
+
+        completed = true;
+        responseStatus = null;
         channel.close();
+        abortBodyWriter();
 
-        if (!channelReleased) {
-            channelReleased = true;
-            channelPool.release(channel);
+        discardAggregatedContent();
+        releaseChannel(channel);
+        if (!isDisposed()) {
+            completionHandler.onError(cause);
         }
-
-        completionHandler.onError(cause);
     }
 
     void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (!isDisposed()) {
+            HostAddresses.channelFailed(ctx.channel());
+        }
+
+        completed = true;
+        responseStatus = null;
+        abortBodyWriter();
+        discardAggregatedContent();
+        releaseChannel(ctx.channel());
+
+        if (!isDisposed()) {
+            completionHandler.onError(new IOException("Channel become inactive"));
+        }
+    }
+
+    protected void releaseChannel(Channel channel) {
         if (!channelReleased) {
             channelReleased = true;
-            channelPool.release(ctx.channel());
+            channelPool.release(channel);
+            releasePermit();
         }
+    }
 
-        completionHandler.onError(new IOException("Channel become inactive"));
+    private void releasePermit() {
+        AdaptiveConcurrencyLimit concurrencyLimit = this.concurrencyLimit;
+        if (concurrencyLimit != null) {
+            this.concurrencyLimit = null;
+            concurrencyLimit.release(responseStatus, System.nanoTime() - permitAcquiredAt);
+        }
+    }
+
+    private void discardAggregatedContent() {
+        if (content != null) {
+            content.release();
+
+            response = null;
+            content = null;
+        }
     }
 }
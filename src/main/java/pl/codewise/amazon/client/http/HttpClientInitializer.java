@@ -4,32 +4,39 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpContentDecompressor;
-import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.handler.timeout.ReadTimeoutHandler;
 import pl.codewise.amazon.client.InactiveConnectionsHandler;
 
-import java.util.concurrent.TimeUnit;
-
 class HttpClientInitializer {
 
-    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
-    private static final int MAX_REQUEST_SIZE = 1200 * BYTES_IN_MEGABYTE;
+    private static final int EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
 
     private final HandlerDemultiplexer demultiplexer;
     private final int requestTimeoutMillis;
+    private final boolean pipeliningEnabled;
 
-    HttpClientInitializer(HandlerDemultiplexer demultiplexer, int requestTimeoutMillis) {
+    HttpClientInitializer(HandlerDemultiplexer demultiplexer, int requestTimeoutMillis, boolean pipeliningEnabled) {
         this.demultiplexer = demultiplexer;
         this.requestTimeoutMillis = requestTimeoutMillis;
+        this.pipeliningEnabled = pipeliningEnabled;
     }
 
+    /**
+     * There is no HttpObjectAggregator in the pipeline. Responses are delivered to the demultiplexer in parts and it
+     * is up to the handler of given request to either aggregate them or stream them to the subscriber.
+     * <p>
+     * With pipelining flushes of requests written back to back are merged, so that they leave in as few packets as
+     * possible.
+     */
     void initChannel(Channel ch) {
         ChannelPipeline p = ch.pipeline();
+        if (pipeliningEnabled) {
+            p.addLast(new FlushConsolidationHandler(EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        }
         p.addLast(new IdleStateHandler(requestTimeoutMillis, 0, 60));
         p.addLast(new HttpClientCodec());
         p.addLast(new HttpContentDecompressor());
-        p.addLast(new HttpObjectAggregator(MAX_REQUEST_SIZE));
         p.addLast(demultiplexer);
         p.addLast(new InactiveConnectionsHandler());
     }
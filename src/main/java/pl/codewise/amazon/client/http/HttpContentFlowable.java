@@ -0,0 +1,200 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.reactivex.Flowable;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Body of a streamed response. Chunks are queued as they are read from the channel and emitted according to
+ * downstream demand. Whenever there is no outstanding demand reading from the socket is suspended (by switching off
+ * channel autoRead) so that slow consumer throttles the connection instead of piling up buffers.
+ * <p>
+ * Only one subscriber is allowed. Emitted buffers must be released by the subscriber. Cancelling the subscription
+ * before whole body was received aborts the exchange by closing the connection.
+ * <p>
+ * All state except for the requested counter is confined to the event loop of the channel.
+ */
+public class HttpContentFlowable extends Flowable<ByteBuf> implements Subscription {
+
+    private final Channel channel;
+
+    private final Queue<ByteBuf> queue = new ArrayDeque<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Subscriber<? super ByteBuf> subscriber;
+    private volatile boolean cancelled;
+
+    private boolean done;
+    private boolean terminated;
+    private boolean draining;
+    private Throwable error;
+
+    HttpContentFlowable(Channel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    protected void subscribeActual(Subscriber<? super ByteBuf> s) {
+        if (!subscribed.compareAndSet(false, true)) {
+            Flowable.<ByteBuf>error(new IllegalStateException("Response content can be subscribed to only once")).subscribe(s);
+            return;
+        }
+
+        subscriber = s;
+        s.onSubscribe(this);
+        runOnEventLoop(this::drain);
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancelled = true;
+            runOnEventLoop(() -> rejectRequest(n));
+            return;
+        }
+
+        long current;
+        long updated;
+        do {
+            current = requested.get();
+            updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!requested.compareAndSet(current, updated));
+
+        runOnEventLoop(this::drain);
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            runOnEventLoop(this::abort);
+        }
+    }
+
+    void onContent(ByteBuf content) {
+        if (cancelled || done) {
+            content.release();
+            return;
+        }
+
+        queue.add(content);
+        drain();
+    }
+
+    void onComplete() {
+        done = true;
+        drain();
+    }
+
+    void onError(Throwable cause) {
+        if (!done) {
+            error = cause;
+            done = true;
+        }
+
+        drain();
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    private void drain() {
+        if (draining) {
+            return;
+        }
+
+        draining = true;
+        try {
+            Subscriber<? super ByteBuf> s = subscriber;
+            if (s == null || terminated) {
+                suspendReadingIfNeeded();
+                return;
+            }
+
+            while (!cancelled) {
+                if (queue.isEmpty()) {
+                    if (done) {
+                        terminate(s);
+                    }
+                    break;
+                }
+
+                long currentlyRequested = requested.get();
+                if (currentlyRequested == 0) {
+                    break;
+                }
+
+                if (currentlyRequested != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+
+                s.onNext(queue.poll());
+            }
+
+            if (cancelled) {
+                releaseQueued();
+            } else {
+                suspendReadingIfNeeded();
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void terminate(Subscriber<? super ByteBuf> s) {
+        terminated = true;
+        if (error != null) {
+            s.onError(error);
+        } else {
+            s.onComplete();
+        }
+    }
+
+    private void suspendReadingIfNeeded() {
+        if (!done) {
+            channel.config().setAutoRead(!cancelled && queue.isEmpty() && requested.get() > 0);
+        }
+    }
+
+    private void abort() {
+        releaseQueued();
+
+        if (!done) {
+            done = true;
+            channel.close();
+        }
+    }
+
+    private void rejectRequest(long n) {
+        abort();
+
+        if (!terminated) {
+            terminated = true;
+            subscriber.onError(new IllegalArgumentException("Rule 3.9 violated: positive request amount required but it was " + n));
+        }
+    }
+
+    private void releaseQueued() {
+        ByteBuf buffer;
+        while ((buffer = queue.poll()) != null) {
+            buffer.release();
+        }
+    }
+
+    private void runOnEventLoop(Runnable task) {
+        if (channel.eventLoop().inEventLoop()) {
+            task.run();
+        } else {
+            channel.eventLoop().execute(task);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Pool of connections of a single bucket that additionally takes a permit from the limiter shared by all buckets.
+ * Acquire first waits for a permit of the bucket, so requests waiting for a busy bucket do not hold permits that
+ * other buckets could use, then for a permit of the shared limiter. Only then it takes a connection from the bucket
+ * pool, so a connection is never opened without both permits.
+ * <p>
+ * Bucket permits are given out by a limiter of the bucket pool's own size, so that acquires wait in its priority
+ * order rather than in FIFO queue of the bucket pool, and the bucket pool never makes them wait again.
+ */
+class LimitedChannelPool implements PrioritizedChannelPool {
+
+    private final BucketChannelPool pool;
+    private final ConnectionLimiter bucketLimiter;
+    private final ConnectionLimiter limiter;
+    private final EventExecutor executor;
+
+    LimitedChannelPool(BucketChannelPool pool, ConnectionLimiter bucketLimiter, ConnectionLimiter limiter, EventExecutor executor) {
+        this.pool = pool;
+        this.bucketLimiter = bucketLimiter;
+        this.limiter = limiter;
+        this.executor = executor;
+    }
+
+    /**
+     * @return pool of the bucket alone, acquiring from it does not count towards the limit shared by all buckets
+     */
+    BucketChannelPool bucketPool() {
+        return pool;
+    }
+
+    /**
+     * @return number of acquires waiting for a connection of this bucket
+     */
+    int pendingAcquires() {
+        return bucketLimiter.pendingAcquires();
+    }
+
+    long oldestPendingWaitNanos(long now) {
+        return bucketLimiter.oldestPendingWaitNanos(now);
+    }
+
+    @Override
+    public Future<Channel> acquire() {
+        return acquire(executor.newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        return acquire(RequestPriority.NORMAL, 0, promise);
+    }
+
+    @Override
+    public Future<Channel> acquire(RequestPriority priority, long deadlineNanos) {
+        return acquire(priority, deadlineNanos, executor.newPromise());
+    }
+
+    /**
+     * Cancelling returned future removes it from the queue of acquires waiting for a permit. Acquire from the bucket
+     * pool is not cancelled, as FixedChannelPool loses track of the channel when its pending acquire is cancelled, the
+     * channel is returned as soon as it is acquired instead.
+     */
+    private Future<Channel> acquire(RequestPriority priority, long deadlineNanos, Promise<Channel> promise) {
+        Future<Void> bucketPermitFuture = bucketLimiter.acquire(executor, priority, deadlineNanos);
+        cancelWith(promise, bucketPermitFuture);
+
+        bucketPermitFuture.addListener(bucketPermit -> {
+            if (!bucketPermit.isSuccess()) {
+                promise.tryFailure(bucketPermit.cause());
+                return;
+            }
+
+            Future<Void> permitFuture = limiter.acquire(executor, priority, deadlineNanos);
+            cancelWith(promise, permitFuture);
+
+            permitFuture.addListener(permit -> {
+                if (!permit.isSuccess()) {
+                    bucketLimiter.release();
+                    promise.tryFailure(permit.cause());
+                    return;
+                }
+
+                pool.acquire().addListener((Future<Channel> channelFuture) -> {
+                    if (!channelFuture.isSuccess()) {
+                        limiter.release();
+                        bucketLimiter.release();
+                        promise.tryFailure(channelFuture.cause());
+                    } else if (!promise.trySuccess(channelFuture.getNow())) {
+                        release(channelFuture.getNow());
+                    }
+                });
+            });
+        });
+
+        return promise;
+    }
+
+    static void cancelWith(Future<?> future, Future<?> dependent) {
+        future.addListener(f -> {
+            if (f.isCancelled()) {
+                dependent.cancel(false);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> release(Channel channel) {
+        return release(channel, executor.newPromise());
+    }
+
+    /**
+     * Permits are given back once the channel is back in the bucket pool, so that the next acquire of the bucket
+     * reuses the channel instead of opening another one and acquires of other buckets find it idle when they need room
+     * for their connections.
+     */
+    @Override
+    public Future<Void> release(Channel channel, Promise<Void> promise) {
+        return pool.release(channel, promise).addListener(future -> {
+            limiter.release();
+            bucketLimiter.release();
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
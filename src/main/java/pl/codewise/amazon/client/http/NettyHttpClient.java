@@ -3,36 +3,92 @@ package pl.codewise.amazon.client.http;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.pool.AbstractChannelPoolHandler;
-import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.AbstractChannelPoolMap;
 import io.netty.channel.pool.ChannelPool;
-import io.netty.channel.pool.FixedChannelPool;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Future;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pl.codewise.amazon.client.ClientConfiguration;
+import pl.codewise.amazon.client.StreamingSubscriptionCompletionHandler;
 import pl.codewise.amazon.client.SubscriptionCompletionHandler;
 import pl.codewise.amazon.client.auth.Operation;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class NettyHttpClient implements AutoCloseable {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyHttpClient.class);
+
     private final String s3Location;
+    private final boolean nativeTransport;
     private final EventLoopGroup group;
+    private final Scheduler scheduler;
 
     private final HandlerDemultiplexer demultiplexer;
-    private final ChannelPool channelPool;
+
+    private final ConnectionLimiter limiter;
+    private final Disposable poolSizer;
+    private final AbstractChannelPoolMap<String, LimitedChannelPool> channelPools;
+
+    private final int maxConnectionsPerBucket;
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final PrefixRateLimiter rateLimiter;
+    private final Disposable rateLimiterEviction;
+
+    private final int maxPipelinedRequests;
+    private final Map<String, PipeliningChannelPool> pipeliningPools = new ConcurrentHashMap<>();
+
+    private final Map<String, HostAddresses> hostAddresses = new ConcurrentHashMap<>();
+    private final Disposable dnsRefresh;
 
     public NettyHttpClient(ClientConfiguration configuration) {
         ThreadGroup threadGroup = new ThreadGroup("Netty RxS3 client");
         AtomicInteger threadCounter = new AtomicInteger();
         ThreadFactory threadFactory = r -> new Thread(threadGroup, r, "RxS3-client-worker" + threadCounter.getAndIncrement());
-        group = new NioEventLoopGroup(configuration.getWorkerThreadCount(), threadFactory);
+
+        nativeTransport = configuration.isNativeTransportEnabled() && Epoll.isAvailable();
+        if (nativeTransport) {
+            LOGGER.info("Using native epoll transport");
+            group = new EpollEventLoopGroup(configuration.getWorkerThreadCount(), threadFactory);
+        } else {
+            if (configuration.isNativeTransportEnabled()) {
+                LOGGER.info("Native transport is not available, using NIO transport: {}", String.valueOf(Epoll.unavailabilityCause()));
+            } else {
+                LOGGER.info("Native transport is disabled, using NIO transport");
+            }
+            group = new NioEventLoopGroup(configuration.getWorkerThreadCount(), threadFactory);
+        }
+
+        scheduler = Schedulers.from(group);
 
         String[] s3LocationArray = configuration.getS3Location().trim().split(":");
 
@@ -52,25 +108,121 @@ public class NettyHttpClient implements AutoCloseable {
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, configuration.getConnectionTimeoutMillis())
-                .channel(NioSocketChannel.class)
-                .remoteAddress(s3Location, port);
+                .channel(nativeTransport ? EpollSocketChannel.class : NioSocketChannel.class);
+
+        if (configuration.getSocketReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, configuration.getSocketReceiveBufferSize());
+        }
+        if (configuration.getSocketSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, configuration.getSocketSendBufferSize());
+        }
+        if (nativeTransport && configuration.isTcpQuickAckEnabled()) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+
+        maxPipelinedRequests = configuration.getMaxPipelinedRequests();
+        maxConnectionsPerBucket = Math.min(configuration.getMaxConnections(), configuration.getMaxConnectionsPerBucket());
+        limiter = new ConnectionLimiter(configuration.getMinConnections(), configuration.getMaxPendingAcquires(), configuration.getAcquireTimeoutMillis());
+        if (configuration.isElasticPoolEnabled()) {
+            poolSizer = new ElasticPoolSizer(limiter, configuration.getMinConnections(), configuration.getMaxConnections(),
+                    configuration.getPoolGrowthPendingAcquires(), configuration.getPoolGrowthWaitMillis(),
+                    configuration.getPoolShrinkDelayMillis()).start(scheduler);
+        } else {
+            poolSizer = null;
+        }
+
+        if (configuration.isAdaptiveConcurrencyEnabled()) {
+            concurrencyLimit = new AdaptiveConcurrencyLimit(configuration.getMinConcurrency(), configuration.getMaxConcurrency(),
+                    configuration.getConcurrencyBackoffRatio(), configuration.getLatencyTolerance(),
+                    configuration.getMaxPendingAcquires(), configuration.getAcquireTimeoutMillis());
+        } else {
+            concurrencyLimit = null;
+        }
+
+        if (configuration.isPrefixRateLimitEnabled()) {
+            rateLimiter = new PrefixRateLimiter(configuration.getPrefixExtractor(),
+                    configuration.getReadsPerSecondPerPrefix(), configuration.getWritesPerSecondPerPrefix());
+            rateLimiterEviction = rateLimiter.start(scheduler);
+        } else {
+            rateLimiter = null;
+            rateLimiterEviction = null;
+        }
 
-        channelPool = new FixedChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+        boolean bucketEndpoints = configuration.isBucketEndpointsEnabled() && !isLocalOrIpAddress(s3Location);
+        AbstractChannelPoolHandler poolHandler = new AbstractChannelPoolHandler() {
 
-            HttpClientInitializer initializer = new HttpClientInitializer(demultiplexer, configuration.getRequestTimeoutMillis());
+            HttpClientInitializer initializer = new HttpClientInitializer(demultiplexer, configuration.getRequestTimeoutMillis(),
+                    maxPipelinedRequests > 1);
 
             @Override
             public void channelCreated(Channel ch) {
+                setWriteBufferWaterMarks(ch.config(), configuration.getWriteBufferLowWaterMark(), configuration.getWriteBufferHighWaterMark());
                 initializer.initChannel(ch);
             }
-        }, ChannelHealthChecker.ACTIVE, FixedChannelPool.AcquireTimeoutAction.FAIL,
-                configuration.getAcquireTimeoutMillis(), configuration.getMaxConnections(), configuration.getMaxPendingAcquires()) {
+        };
+
+        channelPools = new AbstractChannelPoolMap<String, LimitedChannelPool>() {
             @Override
-            protected ChannelFuture connectChannel(Bootstrap bs) {
-                bs.remoteAddress(s3Location, port);
-                return super.connectChannel(bs);
+            protected LimitedChannelPool newPool(String bucketName) {
+                String host = bucketEndpoints ? bucketName + "." + s3Location : s3Location;
+                HostAddresses addresses = hostAddresses.computeIfAbsent(host, key -> new HostAddresses(key, port, Schedulers.io()));
+
+                BucketChannelPool bucketPool = new BucketChannelPool(bootstrap.clone(), poolHandler, addresses,
+                        configuration.getAcquireTimeoutMillis(), maxConnectionsPerBucket, configuration.getMaxPendingAcquires(),
+                        openConnections, NettyHttpClient.this::makeRoomForConnection);
+
+                ConnectionLimiter bucketLimiter = new ConnectionLimiter(maxConnectionsPerBucket,
+                        configuration.getMaxPendingAcquires(), configuration.getAcquireTimeoutMillis());
+                return new LimitedChannelPool(bucketPool, bucketLimiter, limiter, group.next());
             }
         };
+
+        long dnsRefreshIntervalMillis = configuration.getDnsRefreshIntervalMillis();
+        dnsRefresh = Schedulers.io().schedulePeriodicallyDirect(
+                () -> hostAddresses.values().forEach(HostAddresses::refresh),
+                dnsRefreshIntervalMillis, dnsRefreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called before a bucket pool opens a connection. Connections are opened only for acquires holding a permit of the
+     * limiter shared by all buckets, so when open connections exceed its limit the excess ones are idle in bucket pools
+     * and they are closed to keep the number of open connections within the limit.
+     */
+    private void makeRoomForConnection() {
+        int excess = openConnections.get() - limiter.limit();
+        for (Map.Entry<String, LimitedChannelPool> entry : channelPools) {
+            while (excess > 0 && entry.getValue().bucketPool().closeIdleChannel()) {
+                excess--;
+            }
+        }
+    }
+
+    private static boolean isLocalOrIpAddress(String host) {
+        return "localhost".equals(host) || NetUtil.isValidIpV4Address(host) || NetUtil.isValidIpV6Address(host);
+    }
+
+    /**
+     * Netty rejects low water mark above the current high one and the other way round, so the order of setting them
+     * depends on the direction of the change.
+     */
+    private static void setWriteBufferWaterMarks(ChannelConfig config, int low, int high) {
+        if (low > config.getWriteBufferHighWaterMark()) {
+            config.setWriteBufferHighWaterMark(high);
+            config.setWriteBufferLowWaterMark(low);
+        } else {
+            config.setWriteBufferLowWaterMark(low);
+            config.setWriteBufferHighWaterMark(high);
+        }
+    }
+
+    /**
+     * Runs tasks on the event loops of the client, picked round robin, so that timers of retries and hedged requests
+     * reuse threads the client already has instead of waking up io() scheduler threads. The event loop running a
+     * task is not the one of the connection the delayed request is sent over, which is only known once it is
+     * acquired. Tasks must not block.
+     */
+    public Scheduler scheduler() {
+        return scheduler;
     }
 
     public Request prepareGet(String url) {
@@ -89,24 +241,217 @@ public class NettyHttpClient implements AutoCloseable {
         return new Request(url, Operation.DELETE);
     }
 
-    public <T> void executeRequest(Request requestData, SubscriptionCompletionHandler<T> completionHandler) {
-        channelPool.acquire().addListener(new RequestSender(s3Location, requestData, completionHandler, demultiplexer, channelPool));
+    public Request prepareInitiateMultipartUpload(String url) {
+        return new Request(url, Operation.INITIATE_MULTIPART_UPLOAD);
+    }
+
+    public Request prepareUploadPart(String url) {
+        return new Request(url, Operation.UPLOAD_PART);
+    }
+
+    public Request prepareCompleteMultipartUpload(String url) {
+        return new Request(url, Operation.COMPLETE_MULTIPART_UPLOAD);
+    }
+
+    public Request prepareAbortMultipartUpload(String url) {
+        return new Request(url, Operation.ABORT_MULTIPART_UPLOAD);
+    }
+
+    /**
+     * Pipelinable requests share connections when pipelining is enabled. Streamed responses never do, as a slow
+     * subscriber would hold up responses queued behind it.
+     */
+    public <T> Disposable executeRequest(Request requestData, SubscriptionCompletionHandler<T> completionHandler) {
+        PrioritizedChannelPool channelPool;
+        if (maxPipelinedRequests > 1 && requestData.isPipelinable()) {
+            channelPool = pipeliningPools.computeIfAbsent(requestData.getBucketName(),
+                    bucketName -> new PipeliningChannelPool(channelPools.get(bucketName), maxPipelinedRequests, group.next()));
+        } else {
+            channelPool = channelPools.get(requestData.getBucketName());
+        }
+        return executeRequest(requestData, channelPool, new HttpClientHandler(channelPool, completionHandler));
+    }
+
+    public <T> Disposable executeStreamingRequest(Request requestData, StreamingSubscriptionCompletionHandler<T> completionHandler) {
+        PrioritizedChannelPool channelPool = channelPools.get(requestData.getBucketName());
+        return executeRequest(requestData, channelPool, new StreamingHttpClientHandler(channelPool, completionHandler));
+    }
+
+    /**
+     * Request is first delayed on an event loop, without blocking it, if its prefix is over the rate limit. Request that
+     * would be delayed past its deadline fails right away with {@link DeadlineMissedException}. Then it waits for a
+     * permit from the adaptive concurrency limit, if it is enabled.
+     *
+     * @return disposing it abandons the request, see {@link HttpClientHandler}
+     */
+    private Disposable executeRequest(Request requestData, PrioritizedChannelPool channelPool, HttpClientHandler httpClientHandler) {
+        long delayNanos = rateLimiter == null ? 0 : rateLimiter.reserve(requestData);
+        if (delayNanos < 0) {
+            httpClientHandler.acquireFailed(
+                    new DeadlineMissedException("Request would miss its deadline waiting for the prefix rate limit"));
+        } else if (delayNanos > 0) {
+            Future<?> delayFuture = group.next().schedule(() -> {
+                if (!httpClientHandler.isDisposed()) {
+                    acquirePermit(requestData, channelPool, httpClientHandler);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            httpClientHandler.acquireStarted(delayFuture);
+        } else {
+            acquirePermit(requestData, channelPool, httpClientHandler);
+        }
+
+        return httpClientHandler;
+    }
+
+    private void acquirePermit(Request requestData, PrioritizedChannelPool channelPool, HttpClientHandler httpClientHandler) {
+        if (concurrencyLimit == null) {
+            sendRequest(requestData, channelPool, httpClientHandler);
+            return;
+        }
+
+        Future<Void> permitFuture = concurrencyLimit.acquire(group.next(), requestData.getPriority(), requestData.getDeadlineNanos());
+        httpClientHandler.acquireStarted(permitFuture);
+        permitFuture.addListener((Future<Void> future) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+
+            if (!future.isSuccess()) {
+                httpClientHandler.acquireFailed(future.cause());
+                return;
+            }
+
+            httpClientHandler.permitAcquired(concurrencyLimit);
+            if (httpClientHandler.isDisposed()) {
+                httpClientHandler.acquireCancelled();
+            } else {
+                sendRequest(requestData, channelPool, httpClientHandler);
+            }
+        });
+    }
+
+    private void sendRequest(Request requestData, PrioritizedChannelPool channelPool, HttpClientHandler httpClientHandler) {
+        Future<Channel> acquireFuture = channelPool.acquire(requestData.getPriority(), requestData.getDeadlineNanos());
+        httpClientHandler.acquireStarted(acquireFuture);
+        acquireFuture.addListener(new RequestSender(s3Location, requestData, httpClientHandler, demultiplexer));
+    }
+
+    /**
+     * Opens connections to given bucket in parallel by acquiring them all at once and then releasing them to the
+     * pool, where they stay idle until used. Number of connections is capped by the bucket pool size. Warm up does not
+     * wait for permits of the limit shared by all buckets, but warmed connections count as open ones, so they are
+     * closed when other buckets need room for their connections.
+     */
+    public Completable warmUp(String bucketName, int connections) {
+        return warmUp(bucketName, connections, (channelPool, channel) -> {
+            channelPool.release(channel);
+            return Completable.complete();
+        });
+    }
+
+    /**
+     * Like {@link #warmUp(String, int)}, but sends the probe request on every warmed connection and releases the
+     * connection once its response is handled. Connections are all acquired before the first probe is sent, so every
+     * probe goes over a connection of its own.
+     *
+     * @param probeHandler creates completion handler of a probe that reports its response to given emitter
+     */
+    public <T> Completable warmUpAndProbe(String bucketName, int connections, Request probe,
+            Function<SingleEmitter<T>, SubscriptionCompletionHandler<T>> probeHandler) {
+        return warmUp(bucketName, connections, (channelPool, channel) -> Single.<T>create(emitter -> {
+            HttpClientHandler httpClientHandler = new HttpClientHandler(channelPool, probeHandler.apply(emitter));
+            RequestSender requestSender = new RequestSender(s3Location, probe, httpClientHandler, demultiplexer);
+            channel.eventLoop().execute(() -> requestSender.operationComplete(channel.eventLoop().newSucceededFuture(channel)));
+        }).ignoreElement());
+    }
+
+    private Completable warmUp(String bucketName, int connections, BiFunction<ChannelPool, Channel, Completable> warmedUp) {
+        return Completable.defer(() -> {
+            ChannelPool channelPool = channelPools.get(bucketName).bucketPool();
+            int count = Math.min(connections, maxConnectionsPerBucket);
+            if (count <= 0) {
+                return Completable.complete();
+            }
+
+            return Completable.create(emitter -> {
+                List<Channel> acquired = new ArrayList<>(count);
+                AtomicInteger remaining = new AtomicInteger(count);
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+
+                for (int i = 0; i < count; i++) {
+                    channelPool.acquire().addListener((Future<Channel> future) -> {
+                        if (future.isSuccess()) {
+                            synchronized (acquired) {
+                                acquired.add(future.getNow());
+                            }
+                        } else {
+                            failure.compareAndSet(null, future.cause());
+                        }
+
+                        if (remaining.decrementAndGet() == 0) {
+                            if (failure.get() != null) {
+                                acquired.forEach(channelPool::release);
+                                emitter.onError(failure.get());
+                            } else {
+                                emitter.setDisposable(Flowable.fromIterable(acquired)
+                                        .flatMapCompletable(channel -> warmedUp.apply(channelPool, channel))
+                                        .subscribe(emitter::onComplete, emitter::onError));
+                            }
+                        }
+                    });
+                }
+            });
+        });
     }
 
     @Override
     public void close() {
-        channelPool.close();
+        dnsRefresh.dispose();
+        if (poolSizer != null) {
+            poolSizer.dispose();
+        }
+        if (rateLimiterEviction != null) {
+            rateLimiterEviction.dispose();
+        }
+        channelPools.close();
         group.shutdownGracefully();
     }
 
     public int acquiredConnections() {
-        try {
-            Field acquiredChannelCount = FixedChannelPool.class.getDeclaredField("acquiredChannelCount");
-            acquiredChannelCount.setAccessible(true);
+        return limiter.acquired();
+    }
 
-            return (int) acquiredChannelCount.get(channelPool);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    /**
+     * Pending acquires include those waiting for a connection of a busy bucket.
+     */
+    public ConnectionPoolStats connectionPoolStats() {
+        long now = System.nanoTime();
+        int pendingAcquires = limiter.pendingAcquires();
+        long oldestPendingWaitNanos = limiter.oldestPendingWaitNanos(now);
+        for (Map.Entry<String, LimitedChannelPool> entry : channelPools) {
+            pendingAcquires += entry.getValue().pendingAcquires();
+            oldestPendingWaitNanos = Math.max(oldestPendingWaitNanos, entry.getValue().oldestPendingWaitNanos(now));
         }
+
+        return new ConnectionPoolStats(
+                limiter.limit(),
+                limiter.acquired(),
+                pendingAcquires,
+                TimeUnit.NANOSECONDS.toMicros(limiter.averageWaitNanos()),
+                TimeUnit.NANOSECONDS.toMicros(oldestPendingWaitNanos));
+    }
+
+    /**
+     * @return true if connections use native epoll transport, false if they use NIO
+     */
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * @return current adaptive concurrency limit or -1 if it is disabled
+     */
+    public int concurrencyLimit() {
+        return concurrencyLimit == null ? -1 : concurrencyLimit.limit();
     }
 }
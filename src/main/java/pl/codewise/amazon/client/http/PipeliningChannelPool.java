@@ -0,0 +1,117 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Lets up to maxPipelinedRequests requests share a connection acquired from the underlying pool. Acquire returns the
+ * least busy connection that is already in use if it can take one more request, otherwise it acquires a new one.
+ * Connection goes back to the underlying pool when the last request on it releases it.
+ * <p>
+ * Responses come back in the order requests were written, {@link HandlerDemultiplexer} hands them to handlers
+ * accordingly. Requests written after a response that closes the connection fail with the connection.
+ */
+class PipeliningChannelPool implements PrioritizedChannelPool {
+
+    private final PrioritizedChannelPool pool;
+    private final int maxPipelinedRequests;
+    private final EventExecutor executor;
+
+    private final Map<Channel, Integer> requestsInFlight = new HashMap<>();
+
+    PipeliningChannelPool(PrioritizedChannelPool pool, int maxPipelinedRequests, EventExecutor executor) {
+        this.pool = pool;
+        this.maxPipelinedRequests = maxPipelinedRequests;
+        this.executor = executor;
+    }
+
+    @Override
+    public Future<Channel> acquire() {
+        return acquire(executor.newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        return acquire(RequestPriority.NORMAL, 0, promise);
+    }
+
+    @Override
+    public Future<Channel> acquire(RequestPriority priority, long deadlineNanos) {
+        return acquire(priority, deadlineNanos, executor.newPromise());
+    }
+
+    private Future<Channel> acquire(RequestPriority priority, long deadlineNanos, Promise<Channel> promise) {
+        Channel channel = channelInUse();
+        if (channel != null) {
+            return promise.setSuccess(channel);
+        }
+
+        Future<Channel> acquireFuture = pool.acquire(priority, deadlineNanos);
+        LimitedChannelPool.cancelWith(promise, acquireFuture);
+
+        acquireFuture.addListener((Future<Channel> channelFuture) -> {
+            if (!channelFuture.isSuccess()) {
+                promise.tryFailure(channelFuture.cause());
+                return;
+            }
+
+            Channel acquired = channelFuture.getNow();
+            synchronized (this) {
+                requestsInFlight.put(acquired, 1);
+            }
+
+            if (!promise.trySuccess(acquired)) {
+                release(acquired);
+            }
+        });
+
+        return promise;
+    }
+
+    private synchronized Channel channelInUse() {
+        Channel leastBusy = null;
+        int leastRequests = maxPipelinedRequests;
+        for (Map.Entry<Channel, Integer> entry : requestsInFlight.entrySet()) {
+            if (entry.getValue() < leastRequests && entry.getKey().isActive()) {
+                leastBusy = entry.getKey();
+                leastRequests = entry.getValue();
+            }
+        }
+
+        if (leastBusy != null) {
+            requestsInFlight.put(leastBusy, leastRequests + 1);
+        }
+
+        return leastBusy;
+    }
+
+    @Override
+    public Future<Void> release(Channel channel) {
+        return release(channel, executor.newPromise());
+    }
+
+    @Override
+    public Future<Void> release(Channel channel, Promise<Void> promise) {
+        synchronized (this) {
+            int requests = requestsInFlight.getOrDefault(channel, 1);
+            if (requests > 1) {
+                requestsInFlight.put(channel, requests - 1);
+                return promise.setSuccess(null);
+            }
+
+            requestsInFlight.remove(channel);
+        }
+
+        return pool.release(channel, promise);
+    }
+
+    @Override
+    public void close() {
+        // underlying pool is closed by its owner
+    }
+}
@@ -0,0 +1,109 @@
+package pl.codewise.amazon.client.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Keeps request rate of every key prefix within S3 limits with a token bucket per prefix, one for reads and one for
+ * writes. Requests are not rejected, each one reserves a token and is delayed until the token is due, which spreads a
+ * burst over time. Buckets fill up to one second worth of requests and the ones that are full are evicted
+ * periodically.
+ */
+class PrefixRateLimiter implements Runnable {
+
+    private static final long EVICTION_INTERVAL_MILLIS = 10_000;
+
+    private final Function<CharSequence, ? extends CharSequence> prefixExtractor;
+    private final double readsPerNano;
+    private final double writesPerNano;
+
+    private final ConcurrentMap<String, TokenBucket> readBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenBucket> writeBuckets = new ConcurrentHashMap<>();
+
+    PrefixRateLimiter(Function<CharSequence, ? extends CharSequence> prefixExtractor, int readsPerSecond, int writesPerSecond) {
+        this.prefixExtractor = prefixExtractor;
+        this.readsPerNano = readsPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+        this.writesPerNano = writesPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * @param scheduler runs eviction of full buckets, disposing the result stops it
+     */
+    Disposable start(Scheduler scheduler) {
+        return scheduler.schedulePeriodicallyDirect(this, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return how long the request has to wait before it is sent, 0 for requests without a key or -1 if the wait would
+     * run past the deadline of the request, in which case no token is reserved
+     */
+    long reserve(Request request) {
+        if (request.getKey() == null) {
+            return 0;
+        }
+
+        String prefix = request.getBucketName() + '/' + prefixExtractor.apply(request.getKey());
+        TokenBucket bucket;
+        if (request.getOperation().getHttpMethod() == HttpMethod.GET) {
+            bucket = readBuckets.computeIfAbsent(prefix, key -> new TokenBucket(readsPerNano));
+        } else {
+            bucket = writeBuckets.computeIfAbsent(prefix, key -> new TokenBucket(writesPerNano));
+        }
+
+        return bucket.reserve(System.nanoTime(), request.getDeadlineNanos());
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        readBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        writeBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+
+        private double tokens;
+        private long updatedAt;
+
+        TokenBucket(double tokensPerNano) {
+            this.tokensPerNano = tokensPerNano;
+            this.capacity = tokensPerNano * TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.updatedAt = System.nanoTime();
+        }
+
+        /**
+         * Tokens go below zero when requests are waiting for them, so every next one waits longer.
+         */
+        synchronized long reserve(long now, long deadlineNanos) {
+            refill(now);
+            double remaining = tokens - 1;
+            long delayNanos = remaining >= 0 ? 0 : (long) (-remaining / tokensPerNano);
+            if (deadlineNanos != 0 && now + delayNanos - deadlineNanos > 0) {
+                return -1;
+            }
+
+            tokens = remaining;
+            return delayNanos;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Pool whose acquires waiting for a connection are served in {@link RequestPriority} order.
+ */
+interface PrioritizedChannelPool extends ChannelPool {
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} by which the connection must be acquired or 0 if there is none
+     */
+    Future<Channel> acquire(RequestPriority priority, long deadlineNanos);
+}
@@ -1,7 +1,11 @@
 package pl.codewise.amazon.client.http;
 
+import java.io.File;
+import java.nio.file.Path;
+
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpMethod;
+import org.reactivestreams.Publisher;
 import pl.codewise.amazon.client.auth.AWSSignatureCalculatorFactory;
 import pl.codewise.amazon.client.auth.Operation;
 
@@ -11,14 +15,24 @@ public class Request {
     private Operation operation;
 
     private String bucketName;
+    private String key;
     private AWSSignatureCalculatorFactory signatureCalculatorFactory;
 
     private ByteBuf body;
+    private Publisher<ByteBuf> bodyPublisher;
+    private File bodyFile;
+    private long bodyFilePosition;
 
     private String contentType = "";
     private long contentLength;
     private String md5 = "";
 
+    private String range;
+    private String ifMatch;
+
+    private RequestPriority priority = RequestPriority.NORMAL;
+    private long deadlineNanos;
+
     public Request(String url, Operation operation) {
         this.url = url;
         this.operation = operation;
@@ -29,18 +43,50 @@ public class Request {
         return this;
     }
 
+    /**
+     * Object key, used to find the prefix request is rate limited by. Key is copied, as the request may be executed
+     * later on another thread, e.g. when it is delayed by the rate limit, retried or hedged.
+     */
+    public Request setKey(CharSequence key) {
+        this.key = key == null ? null : key.toString();
+        return this;
+    }
+
     public Request setSignatureCalculatorFactory(AWSSignatureCalculatorFactory signatureCalculatorFactory) {
         this.signatureCalculatorFactory = signatureCalculatorFactory;
         return this;
     }
 
+    /**
+     * Body is not released by the request. A retained duplicate is written on every attempt to execute it so caller
+     * keeps the ownership and request can be retried.
+     */
     public Request setBody(ByteBuf body) {
-        this.body = Unpooled.unreleasableBuffer(body);
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * Body will be written in chunks as they are emitted by the publisher. Publisher is subscribed to on every attempt
+     * to execute the request so it must be able to replay the content if request is to be retried.
+     */
+    public Request setBodyPublisher(Publisher<ByteBuf> bodyPublisher) {
+        this.bodyPublisher = bodyPublisher;
+        return this;
+    }
+
+    /**
+     * Body will be transferred from the file starting at given position, content length bytes in total. File is
+     * opened on every attempt to execute the request.
+     */
+    public Request setBodyFile(Path bodyFile, long position) {
+        this.bodyFile = bodyFile.toFile();
+        this.bodyFilePosition = position;
         return this;
     }
 
     public Request setContentType(String contentType) {
-        this.contentType = contentType;
+        this.contentType = contentType == null ? "" : contentType;
         return this;
     }
 
@@ -50,7 +96,34 @@ public class Request {
     }
 
     public Request setMd5(String md5) {
-        this.md5 = md5;
+        this.md5 = md5 == null ? "" : md5;
+        return this;
+    }
+
+    /**
+     * Limits response to bytes from first to last position, both inclusive.
+     */
+    public Request setRange(long first, long last) {
+        this.range = "bytes=" + first + "-" + last;
+        return this;
+    }
+
+    public Request setIfMatch(String eTag) {
+        this.ifMatch = eTag;
+        return this;
+    }
+
+    public Request setPriority(RequestPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Request that could not get a connection by given {@link System#nanoTime()} fails with TimeoutException, 0 means
+     * no deadline.
+     */
+    public Request setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
         return this;
     }
 
@@ -66,6 +139,10 @@ public class Request {
         return bucketName;
     }
 
+    public String getKey() {
+        return key;
+    }
+
     public AWSSignatureCalculatorFactory getSignatureCalculatorFactory() {
         return signatureCalculatorFactory;
     }
@@ -74,6 +151,18 @@ public class Request {
         return body;
     }
 
+    public Publisher<ByteBuf> getBodyPublisher() {
+        return bodyPublisher;
+    }
+
+    public File getBodyFile() {
+        return bodyFile;
+    }
+
+    public long getBodyFilePosition() {
+        return bodyFilePosition;
+    }
+
     public String getContentType() {
         return contentType;
     }
@@ -86,6 +175,30 @@ public class Request {
         return md5;
     }
 
+    public String getRange() {
+        return range;
+    }
+
+    public String getIfMatch() {
+        return ifMatch;
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Only requests that do not modify anything and have no body may share a connection with other requests in
+     * flight. If the connection breaks they fail together and can simply be sent again.
+     */
+    boolean isPipelinable() {
+        return operation.getHttpMethod() == HttpMethod.GET && body == null && bodyPublisher == null && bodyFile == null;
+    }
+
     public Request build() {
         return this;
     }
@@ -0,0 +1,11 @@
+package pl.codewise.amazon.client.http;
+
+/**
+ * Order in which requests waiting for a connection are served. Requests of the same priority are served earliest
+ * deadline first, those without a deadline last, and then in order they arrived.
+ */
+public enum RequestPriority {
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -1,16 +1,16 @@
 package pl.codewise.amazon.client.http;
 
 import io.netty.channel.Channel;
-import io.netty.channel.pool.ChannelPool;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pl.codewise.amazon.client.SubscriptionCompletionHandler;
-import pl.codewise.amazon.client.auth.Operation;
 
 class RequestSender implements FutureListener<Channel> {
 
@@ -18,37 +18,45 @@ class RequestSender implements FutureListener<Channel> {
 
     private final String s3Location;
     private final HandlerDemultiplexer demultiplexer;
-    private final ChannelPool channelPool;
 
     private final Request requestData;
-    private final SubscriptionCompletionHandler completionHandler;
+    private final HttpClientHandler httpClientHandler;
 
-    RequestSender(String s3Location, Request requestData, SubscriptionCompletionHandler completionHandler, HandlerDemultiplexer demultiplexer, ChannelPool channelPool) {
+    RequestSender(String s3Location, Request requestData, HttpClientHandler httpClientHandler, HandlerDemultiplexer demultiplexer) {
         this.s3Location = s3Location;
         this.requestData = requestData;
-        this.completionHandler = completionHandler;
+        this.httpClientHandler = httpClientHandler;
         this.demultiplexer = demultiplexer;
-        this.channelPool = channelPool;
     }
 
     @Override
     public void operationComplete(Future<Channel> future) {
+        if (future.isCancelled()) {
+            httpClientHandler.acquireCancelled();
+            return;
+        }
+
         if (!future.isSuccess()) {
-            completionHandler.onError(future.cause());
+            httpClientHandler.acquireFailed(future.cause());
         } else {
+            Channel channel = future.getNow();
+            httpClientHandler.channelAcquired(channel);
             try {
-                executeRequest(future.getNow(), requestData);
+                executeRequest(channel, requestData);
             } catch (Exception e) {
-                completionHandler.onError(e);
+                httpClientHandler.exceptionCaught(channel, e);
             }
         }
     }
 
     private void executeRequest(Channel channel, Request requestData) {
-        DefaultFullHttpRequest request;
-        if (requestData.getOperation().equals(Operation.PUT)) {
+        HttpRequest request;
+        if (requestData.getBodyPublisher() != null || requestData.getBodyFile() != null) {
+            request = new DefaultHttpRequest(
+                    HttpVersion.HTTP_1_1, requestData.getOperation().getHttpMethod(), requestData.getUrl());
+        } else if (requestData.getBody() != null) {
             request = new DefaultFullHttpRequest(
-                    HttpVersion.HTTP_1_1, requestData.getOperation().getHttpMethod(), requestData.getUrl(), requestData.getBody());
+                    HttpVersion.HTTP_1_1, requestData.getOperation().getHttpMethod(), requestData.getUrl(), requestData.getBody().duplicate().retain());
         } else {
             request = new DefaultFullHttpRequest(
                     HttpVersion.HTTP_1_1, requestData.getOperation().getHttpMethod(), requestData.getUrl());
@@ -61,11 +69,50 @@ class RequestSender implements FutureListener<Channel> {
         request.headers().set(HttpHeaders.Names.CONTENT_LENGTH, requestData.getContentLength());
         request.headers().set(HttpHeaders.Names.CONTENT_MD5, requestData.getMd5());
 
+        if (requestData.getRange() != null) {
+            request.headers().set(HttpHeaders.Names.RANGE, requestData.getRange());
+        }
+        if (requestData.getIfMatch() != null) {
+            request.headers().set(HttpHeaders.Names.IF_MATCH, requestData.getIfMatch());
+        }
+
         requestData.getSignatureCalculatorFactory().getSignatureCalculator()
                 .calculateAndAddSignature(request.headers(), requestData);
 
-        HttpClientHandler httpClientHandler = new HttpClientHandler(channelPool, completionHandler);
-        demultiplexer.setAttributeValue(channel, httpClientHandler);
+        if (channel.eventLoop().inEventLoop()) {
+            send(channel, request);
+        } else {
+            channel.eventLoop().execute(() -> {
+                try {
+                    send(channel, request);
+                } catch (Exception e) {
+                    httpClientHandler.exceptionCaught(channel, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs on the event loop of the channel so that handlers are queued in the same order requests are written.
+     */
+    private void send(Channel channel, HttpRequest request) {
+        if (!httpClientHandler.requestSent()) {
+            ReferenceCountUtil.release(request);
+            return;
+        }
+
+        StreamingBodyWriter bodyWriter = null;
+        FileBodyWriter fileBodyWriter = null;
+        if (requestData.getBodyPublisher() != null) {
+            bodyWriter = new StreamingBodyWriter(channel, httpClientHandler, requestData.getContentLength());
+            httpClientHandler.setBodyWriter(bodyWriter);
+        } else if (requestData.getBodyFile() != null) {
+            fileBodyWriter = new FileBodyWriter(channel, httpClientHandler,
+                    requestData.getBodyFile(), requestData.getBodyFilePosition(), requestData.getContentLength());
+            httpClientHandler.setBodyWriter(fileBodyWriter);
+        }
+
+        demultiplexer.addHandler(channel, httpClientHandler);
         channel.writeAndFlush(request)
                 .addListener(writeFuture -> {
                     if (!writeFuture.isSuccess()) {
@@ -73,5 +120,11 @@ class RequestSender implements FutureListener<Channel> {
                         httpClientHandler.exceptionCaught(channel, writeFuture.cause());
                     }
                 });
+
+        if (bodyWriter != null) {
+            requestData.getBodyPublisher().subscribe(bodyWriter);
+        } else if (fileBodyWriter != null) {
+            fileBodyWriter.write();
+        }
     }
 }
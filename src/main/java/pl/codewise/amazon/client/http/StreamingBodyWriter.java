@@ -0,0 +1,142 @@
+package pl.codewise.amazon.client.http;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.concurrent.Future;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Writes request body as chunks are emitted by the publisher. Next chunk is requested only when channel is writable so
+ * memory used by an upload is bounded by the write buffer high water mark plus one chunk.
+ * <p>
+ * Signals from the publisher are moved to the event loop of the channel, all state is confined to it.
+ */
+class StreamingBodyWriter implements Subscriber<ByteBuf>, BodyWriter {
+
+    private final Channel channel;
+    private final HttpClientHandler httpClientHandler;
+    private final long contentLength;
+
+    private Subscription subscription;
+    private long bytesWritten;
+
+    private boolean awaitingWritability;
+    private boolean completed;
+    private boolean aborted;
+
+    StreamingBodyWriter(Channel channel, HttpClientHandler httpClientHandler, long contentLength) {
+        this.channel = channel;
+        this.httpClientHandler = httpClientHandler;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        channel.eventLoop().execute(() -> {
+            subscription = s;
+            if (aborted) {
+                s.cancel();
+            } else {
+                requestNextChunk();
+            }
+        });
+    }
+
+    @Override
+    public void onNext(ByteBuf chunk) {
+        channel.eventLoop().execute(() -> write(chunk));
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        channel.eventLoop().execute(() -> {
+            if (!aborted) {
+                fail(t);
+            }
+        });
+    }
+
+    @Override
+    public void onComplete() {
+        channel.eventLoop().execute(this::complete);
+    }
+
+    @Override
+    public void channelWritabilityChanged() {
+        if (awaitingWritability && channel.isWritable()) {
+            awaitingWritability = false;
+            requestNextChunk();
+        }
+    }
+
+    @Override
+    public boolean abort() {
+        if (completed || aborted) {
+            return false;
+        }
+
+        aborted = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+
+        return true;
+    }
+
+    private void write(ByteBuf chunk) {
+        if (aborted) {
+            chunk.release();
+            return;
+        }
+
+        bytesWritten += chunk.readableBytes();
+        if (bytesWritten > contentLength) {
+            chunk.release();
+            fail(new IOException("Body is longer than declared content length of " + contentLength + " bytes"));
+            return;
+        }
+
+        channel.writeAndFlush(new DefaultHttpContent(chunk)).addListener(this::checkWriteResult);
+        if (channel.isWritable()) {
+            requestNextChunk();
+        } else {
+            awaitingWritability = true;
+        }
+    }
+
+    private void complete() {
+        if (aborted) {
+            return;
+        }
+
+        if (bytesWritten != contentLength) {
+            fail(new IOException("Body of " + bytesWritten + " bytes is shorter than declared content length of " + contentLength + " bytes"));
+            return;
+        }
+
+        completed = true;
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(this::checkWriteResult);
+    }
+
+    private void requestNextChunk() {
+        if (subscription != null && !aborted) {
+            subscription.request(1);
+        }
+    }
+
+    private void fail(Throwable cause) {
+        abort();
+        httpClientHandler.exceptionCaught(channel, cause);
+    }
+
+    private void checkWriteResult(Future<?> future) {
+        if (!future.isSuccess() && !aborted) {
+            fail(future.cause());
+        }
+    }
+}
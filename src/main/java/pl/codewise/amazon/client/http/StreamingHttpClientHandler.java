@@ -0,0 +1,95 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import pl.codewise.amazon.client.StreamingSubscriptionCompletionHandler;
+import pl.codewise.amazon.client.SubscriptionCompletionHandler;
+
+import java.io.IOException;
+
+/**
+ * Passes successful response to the completion handler as soon as its headers arrive and then streams body chunks
+ * through {@link HttpContentFlowable}. Unsuccessful responses are aggregated as usual so that error can be parsed.
+ */
+class StreamingHttpClientHandler extends HttpClientHandler {
+
+    private final StreamingSubscriptionCompletionHandler<?> completionHandler;
+
+    private HttpContentFlowable content;
+    private boolean keepAlive;
+
+    StreamingHttpClientHandler(ChannelPool channelPool, StreamingSubscriptionCompletionHandler<?> completionHandler) {
+        super(channelPool, completionHandler);
+        this.completionHandler = completionHandler;
+    }
+
+    @Override
+    void channelRead(ChannelHandlerContext ctx, HttpObject msg) {
+        if (isDiscarding()) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        if (msg instanceof HttpResponse && !msg.getDecoderResult().isFailure()) {
+            HttpResponse response = (HttpResponse) msg;
+            if (SubscriptionCompletionHandler.isSuccessful(response.getStatus())) {
+                keepAlive = HttpHeaders.isKeepAlive(response);
+
+                content = new HttpContentFlowable(ctx.channel());
+                completionHandler.onResponse(response, content);
+            }
+        }
+
+        if (content == null) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        if (msg.getDecoderResult().isFailure()) {
+            exceptionCaught(ctx.channel(), msg.getDecoderResult().cause());
+        } else if (msg instanceof HttpContent) {
+            HttpContent chunk = (HttpContent) msg;
+            content.onContent(chunk.content());
+
+            if (chunk instanceof LastHttpContent) {
+                contentReceived(ctx);
+            }
+        }
+    }
+
+    private void contentReceived(ChannelHandlerContext ctx) {
+        ctx.channel().config().setAutoRead(true);
+        if (!keepAlive) {
+            ctx.close();
+        }
+
+        if (!content.isDone()) {
+            content.onComplete();
+            releaseChannel(ctx.channel());
+        }
+    }
+
+    @Override
+    void exceptionCaught(Channel channel, Throwable cause) {
+        super.exceptionCaught(channel, cause);
+
+        if (content != null) {
+            content.onError(cause);
+        }
+    }
+
+    @Override
+    void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        super.channelInactive(ctx);
+
+        if (content != null) {
+            content.onError(new IOException("Channel become inactive"));
+        }
+    }
+}
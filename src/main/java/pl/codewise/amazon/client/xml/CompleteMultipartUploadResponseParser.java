@@ -0,0 +1,44 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import org.xmlpull.v1.XmlPullParserFactory;
+import pl.codewise.amazon.client.xml.handlers.CompleteMultipartUploadTagHandler;
+
+import java.io.IOException;
+
+/**
+ * Amazon may report failure of completing multipart upload with status 200 and error document as a body. Such
+ * response is recognized by lack of ETag and is reported as AmazonS3Exception.
+ */
+public class CompleteMultipartUploadResponseParser extends GenericResponseParser<CompleteMultipartUploadResult> {
+
+    private final ErrorResponseParser errorResponseParser;
+
+    public CompleteMultipartUploadResponseParser(XmlPullParserFactory pullParserFactory, ErrorResponseParser errorResponseParser) {
+        super(pullParserFactory, CompleteMultipartUploadTagHandler.UNKNOWN, CompleteMultipartUploadTagHandler.values());
+        this.errorResponseParser = errorResponseParser;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult parse(HttpResponseStatus status, HttpHeaders headers, ByteBuf content) throws IOException {
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        try {
+            parse(new ByteBufInputStream(content.duplicate()), result);
+        } catch (IOException e) {
+            ReferenceCountUtil.release(content);
+            throw e;
+        }
+
+        if (result.getETag() == null) {
+            throw errorResponseParser.parse(status, headers, content).build();
+        }
+
+        ReferenceCountUtil.release(content);
+        return result;
+    }
+}
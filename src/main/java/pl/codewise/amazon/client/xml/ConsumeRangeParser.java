@@ -0,0 +1,26 @@
+package pl.codewise.amazon.client.xml;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import pl.codewise.amazon.client.GetObjectRangeResponse;
+
+public class ConsumeRangeParser extends GenericResponseParser<GetObjectRangeResponse> {
+
+    private static final ConsumeRangeParser INSTANCE = new ConsumeRangeParser();
+
+    public static ConsumeRangeParser getInstance() {
+        return INSTANCE;
+    }
+
+    private ConsumeRangeParser() {
+        super(null, null);
+    }
+
+    @Override
+    public GetObjectRangeResponse parse(HttpResponseStatus status,
+                                        HttpHeaders headers,
+                                        ByteBuf content) {
+        return new GetObjectRangeResponse(content, headers);
+    }
+}
@@ -0,0 +1,26 @@
+package pl.codewise.amazon.client.xml;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+import pl.codewise.amazon.client.GetObjectStreamResponse;
+
+public class ConsumeStreamParser implements StreamingResponseParser<GetObjectStreamResponse> {
+
+    private static final ConsumeStreamParser INSTANCE = new ConsumeStreamParser();
+
+    public static ConsumeStreamParser getInstance() {
+        return INSTANCE;
+    }
+
+    private ConsumeStreamParser() {
+    }
+
+    @Override
+    public GetObjectStreamResponse parse(HttpResponseStatus status,
+                                         HttpHeaders headers,
+                                         Flowable<ByteBuf> content) {
+        return new GetObjectStreamResponse(content, headers);
+    }
+}
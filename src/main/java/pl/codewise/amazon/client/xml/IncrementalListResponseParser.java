@@ -0,0 +1,116 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+import pl.codewise.amazon.client.ClientConfiguration;
+import pl.codewise.amazon.client.ListObjectsStreamResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scans list response chunk by chunk as it is read from the connection, emitting every object summary as soon as its
+ * Contents tag is closed. Bytes of a tag or text split between chunks are kept until the next chunk completes them.
+ * <p>
+ * Every chunk is scanned and released as soon as it arrives, only its summaries wait for demand, so cancelling the
+ * subscription never leaves chunks queued.
+ */
+public class IncrementalListResponseParser implements StreamingResponseParser<ListObjectsStreamResponse> {
+
+    private final boolean parseETag;
+    private final boolean parseLastModified;
+    private final boolean parseStorageClass;
+    private final boolean parseOwner;
+
+    public IncrementalListResponseParser(ClientConfiguration configuration) {
+        parseETag = !configuration.isSkipParsingETag();
+        parseLastModified = !configuration.isSkipParsingLastModified();
+        parseStorageClass = !configuration.isSkipParsingStorageClass();
+        parseOwner = !configuration.isSkipParsingOwner();
+    }
+
+    @Override
+    public ListObjectsStreamResponse parse(HttpResponseStatus status, HttpHeaders headers, Flowable<ByteBuf> content) {
+        ChunkScanner scanner = new ChunkScanner(parseETag, parseLastModified, parseStorageClass, parseOwner);
+
+        Flowable<S3ObjectSummary> objectSummaries = content
+                .map(scanner::scanChunk)
+                .concatMapIterable(summaries -> summaries, 1)
+                .doOnComplete(scanner::getListing)
+                .doFinally(scanner::release);
+
+        return new ListObjectsStreamResponse(objectSummaries, scanner);
+    }
+
+    /**
+     * Summaries are handed out per chunk instead of being added to the listing, so that only summaries of the chunk
+     * being scanned are held in memory.
+     */
+    private static class ChunkScanner extends ListResponseScanner {
+
+        private List<S3ObjectSummary> scanned = new ArrayList<>();
+        private ByteBuf cumulation;
+        private boolean released;
+
+        ChunkScanner(boolean parseETag, boolean parseLastModified, boolean parseStorageClass, boolean parseOwner) {
+            super(parseETag, parseLastModified, parseStorageClass, parseOwner);
+        }
+
+        @Override
+        protected void summaryScanned(S3ObjectSummary summary) {
+            scanned.add(summary);
+        }
+
+        synchronized List<S3ObjectSummary> scanChunk(ByteBuf chunk) throws IOException {
+            if (released) {
+                chunk.release();
+                return Collections.emptyList();
+            }
+
+            ByteBuf input = chunk;
+            if (cumulation != null) {
+                input = cumulation.writeBytes(chunk);
+                chunk.release();
+            }
+
+            try {
+                scan(input);
+            } finally {
+                keepUnscanned(input);
+            }
+
+            if (scanned.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            List<S3ObjectSummary> summaries = scanned;
+            scanned = new ArrayList<>(summaries.size());
+            return summaries;
+        }
+
+        synchronized void release() {
+            released = true;
+            if (cumulation != null) {
+                cumulation.release();
+                cumulation = null;
+            }
+        }
+
+        private void keepUnscanned(ByteBuf input) {
+            if (!input.isReadable()) {
+                input.release();
+                cumulation = null;
+            } else if (input == cumulation) {
+                cumulation.discardSomeReadBytes();
+            } else {
+                cumulation = input.alloc().heapBuffer(input.readableBytes()).writeBytes(input);
+                input.release();
+            }
+        }
+    }
+}
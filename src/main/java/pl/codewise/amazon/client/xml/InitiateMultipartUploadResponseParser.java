@@ -0,0 +1,31 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import org.xmlpull.v1.XmlPullParserFactory;
+import pl.codewise.amazon.client.xml.handlers.InitiateMultipartUploadTagHandler;
+
+import java.io.IOException;
+
+public class InitiateMultipartUploadResponseParser extends GenericResponseParser<InitiateMultipartUploadResult> {
+
+    public InitiateMultipartUploadResponseParser(XmlPullParserFactory pullParserFactory) {
+        super(pullParserFactory, InitiateMultipartUploadTagHandler.UNKNOWN, InitiateMultipartUploadTagHandler.values());
+    }
+
+    @Override
+    public InitiateMultipartUploadResult parse(HttpResponseStatus status, HttpHeaders headers, ByteBuf content) throws IOException {
+        try {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            parse(new ByteBufInputStream(content), result);
+
+            return result;
+        } finally {
+            ReferenceCountUtil.release(content);
+        }
+    }
+}
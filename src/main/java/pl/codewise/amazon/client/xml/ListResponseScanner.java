@@ -0,0 +1,431 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.Owner;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import javolution.text.CharArray;
+import javolution.text.Cursor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Scans ListBucketResult straight from the bytes of the response. Tags are matched on their UTF-8 bytes and text is
+ * decoded only for fields that are parsed, tag names are never turned into strings.
+ * <p>
+ * Scanner keeps the state of a single response. Each call to {@link #scan(ByteBuf)} consumes all complete tags of the
+ * buffer and leaves its reader index at the first byte it could not process yet, which is where the next call has to
+ * continue once more bytes are appended. Comments, processing instructions and CDATA do not occur in list responses
+ * and are skipped without looking at their contents.
+ */
+public class ListResponseScanner {
+
+    private static final ByteBufProcessor FIND_TAG_START = value -> value != '<';
+    private static final ByteBufProcessor FIND_TAG_END = value -> value != '>';
+    private static final ByteBufProcessor FIND_AMPERSAND = value -> value != '&';
+
+    private static final byte[][] ENTITY_NAMES = {
+            "amp".getBytes(StandardCharsets.US_ASCII),
+            "lt".getBytes(StandardCharsets.US_ASCII),
+            "gt".getBytes(StandardCharsets.US_ASCII),
+            "quot".getBytes(StandardCharsets.US_ASCII),
+            "apos".getBytes(StandardCharsets.US_ASCII)
+    };
+    private static final byte[] ENTITY_VALUES = {'&', '<', '>', '"', '\''};
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final boolean parseETag;
+    private final boolean parseLastModified;
+    private final boolean parseStorageClass;
+    private final boolean parseOwner;
+
+    private final ObjectListing listing = new ObjectListing();
+    private S3ObjectSummary summary;
+    private String lastKey;
+    private boolean inCommonPrefixes;
+    private Tag openTag;
+    private boolean complete;
+
+    public ListResponseScanner(boolean parseETag, boolean parseLastModified, boolean parseStorageClass, boolean parseOwner) {
+        this.parseETag = parseETag;
+        this.parseLastModified = parseLastModified;
+        this.parseStorageClass = parseStorageClass;
+        this.parseOwner = parseOwner;
+    }
+
+    public void scan(ByteBuf buffer) throws IOException {
+        byte[] tagBytes = SCRATCH.get().tagBytes;
+        while (buffer.isReadable()) {
+            int textStart = buffer.readerIndex();
+            int tagStart = buffer.forEachByte(textStart, buffer.writerIndex() - textStart, FIND_TAG_START);
+            if (tagStart < 0) {
+                return;
+            }
+
+            int tagEnd = buffer.forEachByte(tagStart, buffer.writerIndex() - tagStart, FIND_TAG_END);
+            if (tagEnd < 0) {
+                return;
+            }
+
+            int tagLength = Math.min(tagEnd - tagStart - 1, tagBytes.length);
+            buffer.getBytes(tagStart + 1, tagBytes, 0, tagLength);
+
+            if (tagLength > 0 && tagBytes[0] == '/') {
+                Tag tag = Tag.match(tagBytes, 1, tagLength);
+                if (tag != null) {
+                    if (tag == openTag && tagStart > textStart) {
+                        handleText(tag, buffer, textStart, tagStart - textStart);
+                    }
+                    handleEnd(tag);
+                }
+                openTag = null;
+            } else if (tagLength > 0 && tagBytes[0] != '?' && tagBytes[0] != '!') {
+                boolean empty = buffer.getByte(tagEnd - 1) == '/';
+                Tag tag = Tag.match(tagBytes, 0, empty ? tagLength - 1 : tagLength);
+                if (tag != null) {
+                    handleStart(tag);
+                    if (empty) {
+                        handleEnd(tag);
+                    }
+                }
+                openTag = empty ? null : tag;
+            }
+
+            buffer.readerIndex(tagEnd + 1);
+        }
+    }
+
+    /**
+     * @return listing of the response, once its last tag was scanned
+     */
+    public ObjectListing getListing() throws IOException {
+        if (!complete) {
+            throw new IOException("List response ended before ListBucketResult was closed");
+        }
+
+        return listing;
+    }
+
+    /**
+     * Called when Contents tag of an object is closed, adds its summary to the listing.
+     */
+    protected void summaryScanned(S3ObjectSummary summary) {
+        listing.getObjectSummaries().add(summary);
+    }
+
+    private void handleStart(Tag tag) {
+        switch (tag) {
+            case CONTENTS:
+                summary = new S3ObjectSummary();
+                summary.setBucketName(listing.getBucketName());
+                break;
+            case OWNER:
+                if (parseOwner && summary != null) {
+                    summary.setOwner(new Owner());
+                }
+                break;
+            case COMMON_PREFIXES:
+                inCommonPrefixes = true;
+                break;
+            default:
+        }
+    }
+
+    private void handleEnd(Tag tag) {
+        switch (tag) {
+            case CONTENTS:
+                if (summary != null) {
+                    lastKey = summary.getKey();
+                    summaryScanned(summary);
+                    summary = null;
+                }
+                break;
+            case COMMON_PREFIXES:
+                inCommonPrefixes = false;
+                break;
+            case LIST_BUCKET_RESULT:
+                if (!listing.isTruncated()) {
+                    listing.setNextMarker(null);
+                } else if (listing.getNextMarker() == null) {
+                    listing.setNextMarker(lastKey);
+                }
+                complete = true;
+                break;
+            default:
+        }
+    }
+
+    private void handleText(Tag tag, ByteBuf buffer, int index, int length) throws IOException {
+        switch (tag) {
+            case NAME:
+                listing.setBucketName(decode(buffer, index, length));
+                break;
+            case PREFIX:
+                if (inCommonPrefixes) {
+                    listing.getCommonPrefixes().add(decode(buffer, index, length));
+                } else {
+                    listing.setPrefix(decode(buffer, index, length));
+                }
+                break;
+            case MARKER:
+                listing.setMarker(decode(buffer, index, length));
+                break;
+            case NEXT_MARKER:
+                listing.setNextMarker(decode(buffer, index, length));
+                break;
+            case DELIMITER:
+                listing.setDelimiter(decode(buffer, index, length));
+                break;
+            case MAX_KEYS:
+                listing.setMaxKeys((int) parseLong(buffer, index, length));
+                break;
+            case IS_TRUNCATED:
+                listing.setTruncated(length == 4 && buffer.getByte(index) == 't');
+                break;
+            default:
+                if (summary != null) {
+                    handleSummaryText(tag, buffer, index, length);
+                }
+        }
+    }
+
+    private void handleSummaryText(Tag tag, ByteBuf buffer, int index, int length) throws IOException {
+        switch (tag) {
+            case KEY:
+                summary.setKey(decode(buffer, index, length));
+                break;
+            case SIZE:
+                summary.setSize(parseLong(buffer, index, length));
+                break;
+            case ETAG:
+                if (parseETag) {
+                    summary.setETag(decode(buffer, index, length));
+                }
+                break;
+            case LAST_MODIFIED:
+                if (parseLastModified) {
+                    summary.setLastModified(SCRATCH.get().parseDate(buffer, index, length));
+                }
+                break;
+            case STORAGE_CLASS:
+                if (parseStorageClass) {
+                    summary.setStorageClass(decode(buffer, index, length));
+                }
+                break;
+            case ID:
+                if (summary.getOwner() != null) {
+                    summary.getOwner().setId(decode(buffer, index, length));
+                }
+                break;
+            case DISPLAY_NAME:
+                if (summary.getOwner() != null) {
+                    summary.getOwner().setDisplayName(decode(buffer, index, length));
+                }
+                break;
+            default:
+        }
+    }
+
+    private static long parseLong(ByteBuf buffer, int index, int length) throws IOException {
+        byte[] digits = SCRATCH.get().bytes(length);
+        buffer.getBytes(index, digits, 0, length);
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            if (digits[i] < '0' || digits[i] > '9') {
+                throw new IOException("Invalid number in list response: " + buffer.toString(index, length, StandardCharsets.UTF_8));
+            }
+            value = value * 10 + digits[i] - '0';
+        }
+
+        return value;
+    }
+
+    /**
+     * Text without entities is decoded straight from the array backing the buffer when there is one. Otherwise it is
+     * copied to a scratch array and its entities are replaced in place, as none of them is shorter than its UTF-8
+     * bytes.
+     */
+    private static String decode(ByteBuf buffer, int index, int length) throws IOException {
+        int ampersand = buffer.forEachByte(index, length, FIND_AMPERSAND);
+        if (ampersand < 0 && buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + index, length, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = SCRATCH.get().bytes(length);
+        buffer.getBytes(index, bytes, 0, length);
+        int decodedLength = ampersand < 0 ? length : unescape(bytes, ampersand - index, length);
+
+        return new String(bytes, 0, decodedLength, StandardCharsets.UTF_8);
+    }
+
+    private static int unescape(byte[] bytes, int from, int length) throws IOException {
+        int written = from;
+        int i = from;
+        while (i < length) {
+            if (bytes[i] != '&') {
+                bytes[written++] = bytes[i++];
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < length && bytes[end] != ';') {
+                end++;
+            }
+            if (end == length) {
+                throw new IOException("Unterminated entity in list response: " + new String(bytes, 0, length, StandardCharsets.UTF_8));
+            }
+
+            written = appendEntity(bytes, i + 1, end, written);
+            i = end + 1;
+        }
+
+        return written;
+    }
+
+    private static int appendEntity(byte[] bytes, int start, int end, int written) throws IOException {
+        if (bytes[start] == '#') {
+            boolean hex = bytes[start + 1] == 'x';
+            int codePoint = Integer.parseInt(new String(bytes, hex ? start + 2 : start + 1, end - start - (hex ? 2 : 1),
+                    StandardCharsets.US_ASCII), hex ? 16 : 10);
+            byte[] encoded = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(encoded, 0, bytes, written, encoded.length);
+            return written + encoded.length;
+        }
+
+        bytes[written] = namedEntity(bytes, start, end);
+        return written + 1;
+    }
+
+    private static byte namedEntity(byte[] bytes, int start, int end) throws IOException {
+        for (int i = 0; i < ENTITY_NAMES.length; i++) {
+            byte[] name = ENTITY_NAMES[i];
+            if (name.length == end - start && matches(name, bytes, start)) {
+                return ENTITY_VALUES[i];
+            }
+        }
+
+        throw new IOException("Unknown entity in list response: " + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private static boolean matches(byte[] name, byte[] bytes, int start) {
+        for (int i = 0; i < name.length; i++) {
+            if (bytes[start + i] != name[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private enum Tag {
+        LIST_BUCKET_RESULT("ListBucketResult"),
+        NAME("Name"),
+        PREFIX("Prefix"),
+        MARKER("Marker"),
+        NEXT_MARKER("NextMarker"),
+        MAX_KEYS("MaxKeys"),
+        DELIMITER("Delimiter"),
+        IS_TRUNCATED("IsTruncated"),
+        CONTENTS("Contents"),
+        KEY("Key"),
+        LAST_MODIFIED("LastModified"),
+        ETAG("ETag"),
+        SIZE("Size"),
+        STORAGE_CLASS("StorageClass"),
+        OWNER("Owner"),
+        ID("ID"),
+        DISPLAY_NAME("DisplayName"),
+        COMMON_PREFIXES("CommonPrefixes");
+
+        private static final Tag[][] TAGS_BY_NAME_LENGTH = tagsByNameLength();
+
+        private final byte[] name;
+
+        Tag(String name) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param end index of the byte ending the tag, name ends at it or at the first space before it
+         */
+        static Tag match(byte[] bytes, int start, int end) {
+            int nameEnd = start;
+            while (nameEnd < end && bytes[nameEnd] != ' ') {
+                nameEnd++;
+            }
+
+            int nameLength = nameEnd - start;
+            if (nameLength >= TAGS_BY_NAME_LENGTH.length) {
+                return null;
+            }
+
+            for (Tag tag : TAGS_BY_NAME_LENGTH[nameLength]) {
+                if (matches(tag.name, bytes, start)) {
+                    return tag;
+                }
+            }
+
+            return null;
+        }
+
+        private static Tag[][] tagsByNameLength() {
+            int maxLength = 0;
+            for (Tag tag : values()) {
+                maxLength = Math.max(maxLength, tag.name.length);
+            }
+
+            Tag[][] tags = new Tag[maxLength + 1][0];
+            for (Tag tag : values()) {
+                tags[tag.name.length] = Arrays.copyOf(tags[tag.name.length], tags[tag.name.length].length + 1);
+                tags[tag.name.length][tags[tag.name.length].length - 1] = tag;
+            }
+
+            return tags;
+        }
+    }
+
+    /**
+     * Buffers reused by all scanners of a thread, text is decoded one field at a time. Dates are ASCII, they are
+     * copied to a char array for {@link DateTimeParser}.
+     */
+    private static class Scratch {
+
+        private final DateTimeParser dateTimeParser = new DateTimeParser();
+        private final byte[] tagBytes = new byte[32];
+        private final char[] characters = new char[32];
+        private final CharArray text = new CharArray();
+        private final Cursor cursor = new Cursor();
+        private final Calendar calendar = Calendar.getInstance();
+
+        private byte[] bytes = new byte[1024];
+
+        byte[] bytes(int length) {
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+
+            return bytes;
+        }
+
+        Date parseDate(ByteBuf buffer, int index, int length) throws IOException {
+            if (length > characters.length) {
+                throw new IOException("Invalid date in list response: " + buffer.toString(index, length, StandardCharsets.UTF_8));
+            }
+
+            byte[] ascii = bytes(length);
+            buffer.getBytes(index, ascii, 0, length);
+            for (int i = 0; i < length; i++) {
+                characters[i] = (char) ascii[i];
+            }
+
+            return dateTimeParser.parse(text.setArray(characters, 0, length), cursor, calendar);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import pl.codewise.amazon.client.ClientConfiguration;
+
+import java.io.IOException;
+
+/**
+ * Parses list responses with {@link ListResponseScanner} instead of XPP3. Gives the same listing as
+ * {@link ListResponseParser} with the same configuration.
+ */
+public class ScanningListResponseParser extends GenericResponseParser<ObjectListing> {
+
+    private final boolean parseETag;
+    private final boolean parseLastModified;
+    private final boolean parseStorageClass;
+    private final boolean parseOwner;
+
+    public ScanningListResponseParser(ClientConfiguration configuration) {
+        super(null, null);
+
+        parseETag = !configuration.isSkipParsingETag();
+        parseLastModified = !configuration.isSkipParsingLastModified();
+        parseStorageClass = !configuration.isSkipParsingStorageClass();
+        parseOwner = !configuration.isSkipParsingOwner();
+    }
+
+    public ListResponseScanner newScanner() {
+        return new ListResponseScanner(parseETag, parseLastModified, parseStorageClass, parseOwner);
+    }
+
+    @Override
+    public ObjectListing parse(HttpResponseStatus status, HttpHeaders headers, ByteBuf content) throws IOException {
+        try {
+            ListResponseScanner scanner = newScanner();
+            scanner.scan(content);
+            return scanner.getListing();
+        } finally {
+            ReferenceCountUtil.release(content);
+        }
+    }
+}
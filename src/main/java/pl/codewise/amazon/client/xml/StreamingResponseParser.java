@@ -0,0 +1,17 @@
+package pl.codewise.amazon.client.xml;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+
+import java.io.IOException;
+
+public interface StreamingResponseParser<T> {
+
+    T parse(
+            HttpResponseStatus status,
+            HttpHeaders headers,
+            Flowable<ByteBuf> content
+    ) throws IOException;
+}
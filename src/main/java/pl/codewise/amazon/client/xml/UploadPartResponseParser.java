@@ -0,0 +1,29 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+
+public class UploadPartResponseParser extends GenericResponseParser<UploadPartResult> {
+
+    private final int partNumber;
+
+    public UploadPartResponseParser(int partNumber) {
+        super(null, null);
+        this.partNumber = partNumber;
+    }
+
+    @Override
+    public UploadPartResult parse(HttpResponseStatus status, HttpHeaders headers, ByteBuf content) {
+        ReferenceCountUtil.release(content);
+
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(partNumber);
+        result.setETag(headers.get(Headers.ETAG));
+
+        return result;
+    }
+}
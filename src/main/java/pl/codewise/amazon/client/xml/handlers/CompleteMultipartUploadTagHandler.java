@@ -0,0 +1,51 @@
+package pl.codewise.amazon.client.xml.handlers;
+
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import org.xmlpull.v1.XmlPullParser;
+import pl.codewise.amazon.client.xml.ContextStack;
+
+public enum CompleteMultipartUploadTagHandler implements TagHandler<CompleteMultipartUploadResult> {
+
+    COMPLETE_MULTIPART_UPLOAD_RESULT("CompleteMultipartUploadResult") {
+    }, LOCATION("Location") {
+        @Override
+        public void handleText(CompleteMultipartUploadResult result, XmlPullParser parser, ContextStack<CompleteMultipartUploadResult> handlerStack) {
+            result.setLocation(parser.getText());
+        }
+    }, BUCKET("Bucket") {
+        @Override
+        public void handleText(CompleteMultipartUploadResult result, XmlPullParser parser, ContextStack<CompleteMultipartUploadResult> handlerStack) {
+            result.setBucketName(parser.getText());
+        }
+    }, KEY("Key") {
+        @Override
+        public void handleText(CompleteMultipartUploadResult result, XmlPullParser parser, ContextStack<CompleteMultipartUploadResult> handlerStack) {
+            result.setKey(parser.getText());
+        }
+    }, ETAG("ETag") {
+        @Override
+        public void handleText(CompleteMultipartUploadResult result, XmlPullParser parser, ContextStack<CompleteMultipartUploadResult> handlerStack) {
+            result.setETag(parser.getText());
+        }
+    }, UNKNOWN("Unknown");
+
+    private String tagName;
+
+    CompleteMultipartUploadTagHandler(String tagName) {
+        this.tagName = tagName;
+    }
+
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    public void handleText(CompleteMultipartUploadResult result, XmlPullParser parser, ContextStack<CompleteMultipartUploadResult> handlerStack) {
+    }
+
+    public void handleStart(CompleteMultipartUploadResult result, XmlPullParser parser) {
+    }
+
+    public void handleEnd(CompleteMultipartUploadResult result, XmlPullParser parser) {
+    }
+}
@@ -0,0 +1,46 @@
+package pl.codewise.amazon.client.xml.handlers;
+
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import org.xmlpull.v1.XmlPullParser;
+import pl.codewise.amazon.client.xml.ContextStack;
+
+public enum InitiateMultipartUploadTagHandler implements TagHandler<InitiateMultipartUploadResult> {
+
+    INITIATE_MULTIPART_UPLOAD_RESULT("InitiateMultipartUploadResult") {
+    }, BUCKET("Bucket") {
+        @Override
+        public void handleText(InitiateMultipartUploadResult result, XmlPullParser parser, ContextStack<InitiateMultipartUploadResult> handlerStack) {
+            result.setBucketName(parser.getText());
+        }
+    }, KEY("Key") {
+        @Override
+        public void handleText(InitiateMultipartUploadResult result, XmlPullParser parser, ContextStack<InitiateMultipartUploadResult> handlerStack) {
+            result.setKey(parser.getText());
+        }
+    }, UPLOAD_ID("UploadId") {
+        @Override
+        public void handleText(InitiateMultipartUploadResult result, XmlPullParser parser, ContextStack<InitiateMultipartUploadResult> handlerStack) {
+            result.setUploadId(parser.getText());
+        }
+    }, UNKNOWN("Unknown");
+
+    private String tagName;
+
+    InitiateMultipartUploadTagHandler(String tagName) {
+        this.tagName = tagName;
+    }
+
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    public void handleText(InitiateMultipartUploadResult result, XmlPullParser parser, ContextStack<InitiateMultipartUploadResult> handlerStack) {
+    }
+
+    public void handleStart(InitiateMultipartUploadResult result, XmlPullParser parser) {
+    }
+
+    public void handleEnd(InitiateMultipartUploadResult result, XmlPullParser parser) {
+    }
+}
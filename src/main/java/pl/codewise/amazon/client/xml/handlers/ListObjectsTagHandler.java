@@ -18,7 +18,7 @@ public enum ListObjectsTagHandler implements TagHandler<ObjectListing> {
         @Override
         public void handleEnd(ObjectListing objectListing, XmlPullParser parser) {
             List<S3ObjectSummary> objectSummaries = objectListing.getObjectSummaries();
-            if (objectSummaries.size() > 0) {
+            if (objectListing.getNextMarker() == null && objectSummaries.size() > 0) {
                 S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
                 objectListing.setNextMarker(summary.getKey());
             }
@@ -0,0 +1,171 @@
+package pl.codewise.amazon.client.xml.handlers;
+
+import java.util.Date;
+import java.util.List;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.Owner;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import javolution.text.CharArray;
+import javolution.text.TypeFormat;
+import org.xmlpull.v1.XmlPullParser;
+import pl.codewise.amazon.client.xml.ContextStack;
+import pl.codewise.amazon.client.xml.DateTimeParser;
+
+public enum ListObjectsV2TagHandler implements TagHandler<ListObjectsV2Result> {
+
+    IS_TRUNCATED("IsTruncated") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            CharArray text = handlerStack.getTextCharacters(parser);
+            listing.setTruncated(TypeFormat.parseBoolean(text, handlerStack.getCursor()));
+        }
+    }, KEY("Key") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            summary.setKey(parser.getText());
+        }
+    }, ETAG("ETag") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            summary.setETag(parser.getText());
+        }
+    }, SIZE("Size") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            CharArray textCharacters = handlerStack.getTextCharacters(parser);
+            summary.setSize(TypeFormat.parseLong(textCharacters, handlerStack.getCursor()));
+        }
+    }, LAST_MODIFIED("LastModified") {
+
+        private final DateTimeParser dateTimeParser = new DateTimeParser();
+
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            CharArray text = handlerStack.getTextCharacters(parser);
+            Date lastModified = dateTimeParser.parse(text, handlerStack.getCursor(), handlerStack.getCalendar());
+            summary.setLastModified(lastModified);
+        }
+    }, STORAGE_CLASS("StorageClass") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            summary.setStorageClass(parser.getText());
+        }
+    }, OWNER("Owner") {
+        @Override
+        public void handleStart(ListObjectsV2Result listing, XmlPullParser parser) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            summary.setOwner(new Owner());
+        }
+    }, ID("ID") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            Owner owner = summary.getOwner();
+            owner.setId(parser.getText());
+        }
+    }, DISPLAY_NAME("DisplayName") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            List<S3ObjectSummary> objectSummaries = listing.getObjectSummaries();
+            S3ObjectSummary summary = objectSummaries.get(objectSummaries.size() - 1);
+
+            Owner owner = summary.getOwner();
+            owner.setDisplayName(parser.getText());
+        }
+    }, CONTENTS("Contents") {
+        @Override
+        public void handleStart(ListObjectsV2Result listing, XmlPullParser parser) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(listing.getBucketName());
+
+            listing.getObjectSummaries().add(summary);
+        }
+    }, NAME("Name") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            listing.setBucketName(parser.getText());
+        }
+    }, PREFIX("Prefix") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            if (handlerStack.topMinusOne() == COMMON_PREFIXES) {
+                listing.getCommonPrefixes().add(parser.getText());
+            } else {
+                listing.setPrefix(parser.getText());
+            }
+        }
+    }, MAX_KEYS("MaxKeys") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            CharArray textCharacters = handlerStack.getTextCharacters(parser);
+            listing.setMaxKeys(TypeFormat.parseInt(textCharacters, handlerStack.getCursor()));
+        }
+    }, DELIMITER("Delimiter") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            listing.setDelimiter(parser.getText());
+        }
+    }, CONTINUATION_TOKEN("ContinuationToken") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            listing.setContinuationToken(parser.getText());
+        }
+    }, NEXT_CONTINUATION_TOKEN("NextContinuationToken") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            listing.setNextContinuationToken(parser.getText());
+        }
+    }, KEY_COUNT("KeyCount") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            CharArray textCharacters = handlerStack.getTextCharacters(parser);
+            listing.setKeyCount(TypeFormat.parseInt(textCharacters, handlerStack.getCursor()));
+        }
+    }, START_AFTER("StartAfter") {
+        @Override
+        public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+            listing.setStartAfter(parser.getText());
+        }
+    }, COMMON_PREFIXES("CommonPrefixes") {
+    }, UNKNOWN("Unknown");
+
+    private String tagName;
+
+    ListObjectsV2TagHandler(String tagName) {
+        this.tagName = tagName;
+    }
+
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    public void handleText(ListObjectsV2Result listing, XmlPullParser parser, ContextStack<ListObjectsV2Result> handlerStack) {
+    }
+
+    public void handleStart(ListObjectsV2Result listing, XmlPullParser parser) {
+    }
+
+    public void handleEnd(ListObjectsV2Result listing, XmlPullParser parser) {
+    }
+}
@@ -7,7 +7,7 @@ public interface TagHandler<Context> {
 
 	String getTagName();
 
-	void handleText(Context context, XmlPullParser parser, ContextStack handlerStack);
+	void handleText(Context context, XmlPullParser parser, ContextStack<Context> handlerStack);
 
 	void handleStart(Context context, XmlPullParser parser);
 
@@ -9,7 +9,11 @@ import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.googlecode.catchexception.CatchException;
 import com.jayway.awaitility.Awaitility;
 import com.jayway.awaitility.Duration;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.PublishSubject;
@@ -20,14 +24,23 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.testng.annotations.*;
+import pl.codewise.amazon.client.http.DeadlineMissedException;
+import pl.codewise.amazon.client.http.RequestPriority;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -235,6 +248,110 @@ public class AsyncS3ClientTest {
                 .isEqualTo(amazonListing).isNotTruncated();
     }
 
+    @Test
+    public void shouldListAllPages() {
+        // Given
+        ListObjectsRequest request = new ListObjectsRequest();
+        request.setBucketName(bucketName);
+        request.setPrefix("COUNTRY_BY_DATE/2014/");
+        request.setMaxKeys(1);
+
+        // When
+        List<ObjectListing> pages = client.listAllPages(request)
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(pages).hasSize(4);
+        assertThat(pages.get(3).isTruncated()).isFalse();
+    }
+
+    @Test
+    public void shouldListAllObjects() {
+        // When
+        List<S3ObjectSummary> summaries = client.listAllObjects(bucketName, "COUNTRY_BY_DATE/2014/05/")
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(summaries)
+                .extracting("key")
+                .containsExactly("COUNTRY_BY_DATE/2014/05/PL", "COUNTRY_BY_DATE/2014/05/US");
+    }
+
+    @Test
+    public void shouldStreamAllObjects() {
+        // When
+        List<S3ObjectSummary> summaries = client.streamAllObjects(bucketName, "COUNTRY_BY_DATE/2014/05/")
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(summaries)
+                .extracting("key")
+                .containsExactly("COUNTRY_BY_DATE/2014/05/PL", "COUNTRY_BY_DATE/2014/05/US");
+    }
+
+    @Test
+    public void shouldListObjectsInParallelInKeyOrder() {
+        // Given
+        List<String> splitPoints = Arrays.asList("COUNTRY_BY_DATE/2014/05/PL", "COUNTRY_BY_DATE/2014/06");
+
+        // When
+        List<S3ObjectSummary> summaries = client.listAllObjectsInParallel(bucketName, "COUNTRY_BY_DATE/2014/", splitPoints, 3, true)
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(summaries)
+                .extracting("key")
+                .containsExactly(
+                        "COUNTRY_BY_DATE/2014/05/PL",
+                        "COUNTRY_BY_DATE/2014/05/US",
+                        "COUNTRY_BY_DATE/2014/06/CZ",
+                        "COUNTRY_BY_DATE/2014/07/UK");
+    }
+
+    @Test
+    public void shouldWalkPrefixesSkippingPrunedSubtrees() {
+        // When
+        List<S3ObjectSummary> summaries = client.walkPrefixes(bucketName, "COUNTRY_BY_DATE/", "/", 2, 4,
+                prefix -> !prefix.equals("COUNTRY_BY_DATE/2014/06/"))
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(summaries)
+                .extracting("key")
+                .containsOnly("COUNTRY_BY_DATE/2014/05/PL", "COUNTRY_BY_DATE/2014/05/US", "COUNTRY_BY_DATE/2014/07/UK");
+    }
+
+    @Test
+    public void shouldListObjectsV2WithContinuationTokens() {
+        // Given
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix("COUNTRY_BY_DATE/2014/")
+                .withStartAfter("COUNTRY_BY_DATE/2014/05/PL")
+                .withMaxKeys(2);
+
+        // When
+        List<ListObjectsV2Result> pages = client.listAllPages(request)
+                .toList()
+                .blockingGet();
+
+        // Then
+        assertThat(pages).hasSize(2);
+        assertThat(pages.get(0).getNextContinuationToken()).isNotNull();
+        assertThat(pages.get(0).getKeyCount()).isEqualTo(2);
+        assertThat(pages.get(0).getObjectSummaries())
+                .extracting("key")
+                .containsExactly("COUNTRY_BY_DATE/2014/05/US", "COUNTRY_BY_DATE/2014/06/CZ");
+        assertThat(pages.get(1).getObjectSummaries())
+                .extracting("key")
+                .containsExactly("COUNTRY_BY_DATE/2014/07/UK");
+    }
+
     @Test
     public void shouldListObjectWithMaxKeysLimit() {
         // Given
@@ -445,6 +562,79 @@ public class AsyncS3ClientTest {
         assertThat(actual).isEqualTo(data);
     }
 
+    @Test
+    public void shouldPutObjectFromFlowable() throws IOException {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(1024 * 1024).getBytes();
+        int chunkSize = 16 * 1024;
+
+        Flowable<ByteBuf> body = Flowable
+                .range(0, data.length / chunkSize)
+                .map(chunk -> Unpooled.wrappedBuffer(data, chunk * chunkSize, chunkSize));
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setContentType("application/octet-stream");
+
+        // When
+        client.putObject(bucketName, objectName, body, metadata)
+                .blockingGet();
+
+        // Then
+        S3Object object = amazonS3Client.getObject(bucketName, objectName);
+        byte[] actual = IOUtils.toByteArray(object.getObjectContent());
+
+        assertThat(actual).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldPutObjectFromFile() throws IOException {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(1024 * 1024).getBytes();
+
+        Path file = Files.createTempFile("upload", ".bin");
+        Files.write(file, data);
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("application/octet-stream");
+
+        // When
+        try {
+            client.putObject(bucketName, objectName, file, metadata)
+                    .blockingGet();
+        } finally {
+            Files.delete(file);
+        }
+
+        // Then
+        S3Object object = amazonS3Client.getObject(bucketName, objectName);
+        byte[] actual = IOUtils.toByteArray(object.getObjectContent());
+
+        assertThat(actual).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldPutObjectMultipart() throws IOException {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(12 * 1024 * 1024).getBytes();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("application/octet-stream");
+
+        // When
+        client.putObjectMultipart(bucketName, objectName, Unpooled.wrappedBuffer(data), metadata)
+                .blockingGet();
+
+        // Then
+        S3Object object = amazonS3Client.getObject(bucketName, objectName);
+        byte[] actual = IOUtils.toByteArray(object.getObjectContent());
+
+        assertThat(actual).isEqualTo(data);
+    }
+
     @Test
     public void shouldGetObject() {
         // Given
@@ -467,6 +657,109 @@ public class AsyncS3ClientTest {
         assertThat(actual).hasContentEqualTo(new ByteArrayInputStream(data));
     }
 
+    @Test
+    public void shouldGetObjectInParallel() {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(100 * 1024 + 17).getBytes();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setContentType("application/octet-stream");
+
+        amazonS3Client.putObject(bucketName, objectName, new ByteArrayInputStream(data), metadata);
+
+        // When
+        CompositeByteBuf actual = client.getObjectParallel(bucketName, objectName, 16 * 1024, 4)
+                .collect(Unpooled::compositeBuffer, (content, part) -> content.addComponent(true, part))
+                .blockingGet();
+
+        // Then
+        try {
+            assertThat(actual.toString(StandardCharsets.UTF_8)).isEqualTo(new String(data, StandardCharsets.UTF_8));
+        } finally {
+            actual.release();
+        }
+    }
+
+    @Test
+    public void shouldGetObjectToFile() throws IOException {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(100 * 1024 + 17).getBytes();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setContentType("application/octet-stream");
+
+        amazonS3Client.putObject(bucketName, objectName, new ByteArrayInputStream(data), metadata);
+
+        Path file = Files.createTempFile("download", ".bin");
+
+        // When
+        try {
+            long written = client.getObjectToFile(bucketName, objectName, file, 16 * 1024, 4)
+                    .blockingGet();
+
+            // Then
+            assertThat(written).isEqualTo(data.length);
+            assertThat(Files.readAllBytes(file)).isEqualTo(data);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void shouldStreamObject() {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(1024 * 1024).getBytes();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setContentType("application/octet-stream");
+        metadata.setContentMD5(getBase64EncodedMD5Hash(data));
+
+        amazonS3Client.putObject(bucketName, objectName, new ByteArrayInputStream(data), metadata);
+
+        // When
+        GetObjectStreamResponse response = client.getObjectStream(bucketName, objectName)
+                .blockingGet();
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        response.getContent()
+                .rebatchRequests(1)
+                .blockingForEach(buffer -> {
+                    buffer.readBytes(actual, buffer.readableBytes());
+                    buffer.release();
+                });
+
+        // Then
+        assertThat(response.getContentLength()).isEqualTo(data.length);
+        assertThat(actual.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldReleaseConnectionWhenObjectStreamIsCancelled() {
+        // Given
+        String objectName = RandomStringUtils.randomAlphanumeric(55);
+        byte[] data = RandomStringUtils.randomAlphanumeric(1024 * 1024).getBytes();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setContentType("application/octet-stream");
+
+        amazonS3Client.putObject(bucketName, objectName, new ByteArrayInputStream(data), metadata);
+
+        // When
+        client.getObjectStream(bucketName, objectName)
+                .flatMapPublisher(GetObjectStreamResponse::getContent)
+                .take(1)
+                .blockingForEach(ByteBuf::release);
+
+        // Then connection is released (verified after each test)
+    }
+
     @Test
     public void shouldReturnObjectMetadataInGetObject() {
         // Given
@@ -550,6 +843,216 @@ public class AsyncS3ClientTest {
         testObserver.assertErrorMessage("Channel become inactive");
     }
 
+    @Test
+    public void shouldReleaseConnectionWhenRequestIsDisposed() {
+        // Given
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get(urlEqualTo("/slow"))
+                .willReturn(
+                        aResponse()
+                                .withFixedDelay(10000)
+                                .withStatus(200)
+                )
+        );
+        wireMockServer.stubFor(get(urlEqualTo("/fast"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                )
+        );
+
+        ClientConfiguration configuration = ClientConfiguration
+                .builder()
+                .connectTo("localhost:" + wireMockServer.port())
+                .withPoolSize(1)
+                .useCredentials(credentials)
+                .build();
+
+        AsyncS3Client client = S3ClientFactory.createClient(configuration);
+
+        TestObserver<GetObjectResponse> slowObserver = client
+                .getObject("test", "slow")
+                .test();
+        Awaitility.await().atMost(Duration.FIVE_SECONDS).until(() ->
+                wireMockServer.findAll(getRequestedFor(urlEqualTo("/slow"))).size() == 1);
+
+        // When
+        slowObserver.dispose();
+        TestObserver<GetObjectResponse> fastObserver = client
+                .getObject("test", "fast")
+                .test();
+
+        // Then
+        fastObserver.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        fastObserver.assertComplete();
+        slowObserver.assertNotTerminated();
+        assertThat(client.acquiredConnections()).isEqualTo(0);
+
+        client.close();
+    }
+
+    @Test
+    public void shouldLowerConcurrencyLimitWhenThrottled() {
+        // Given
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get(urlEqualTo("/throttled"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(503)
+                                .withBody("<Error><Code>SlowDown</Code><Message>Please reduce your request rate.</Message></Error>")
+                )
+        );
+
+        ClientConfiguration configuration = ClientConfiguration
+                .builder()
+                .connectTo("localhost:" + wireMockServer.port())
+                .enableAdaptiveConcurrency(2, 10)
+                .useCredentials(credentials)
+                .build();
+
+        AsyncS3Client client = S3ClientFactory.createClient(configuration);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            client.getObject("test", "throttled")
+                    .test()
+                    .awaitTerminalEvent();
+        }
+
+        // Then
+        assertThat(client.concurrencyLimit()).isLessThan(10);
+
+        client.close();
+    }
+
+    @Test
+    public void shouldDelayRequestsOverPrefixRateLimit() {
+        // Given
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get(urlMatching("/prefix/.*"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                )
+        );
+
+        ClientConfiguration configuration = ClientConfiguration
+                .builder()
+                .connectTo("localhost:" + wireMockServer.port())
+                .enablePrefixRateLimit()
+                .withPrefixRateLimits(5, 5)
+                .useCredentials(credentials)
+                .build();
+
+        AsyncS3Client client = S3ClientFactory.createClient(configuration);
+
+        // When
+        long start = System.nanoTime();
+        Flowable.range(0, 10)
+                .flatMapSingle(i -> client.getObject("test", "prefix/" + i))
+                .blockingLast();
+
+        // Then
+        assertThat(System.nanoTime() - start).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(800));
+
+        client.close();
+    }
+
+    @Test
+    public void shouldServeRequestsOfHigherPriorityFirst() {
+        // Given
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get(urlEqualTo("/slow"))
+                .willReturn(
+                        aResponse()
+                                .withFixedDelay(500)
+                                .withStatus(200)
+                )
+        );
+        wireMockServer.stubFor(get(urlMatching("/(low|high)"))
+                .willReturn(
+                        aResponse()
+                                .withStatus(200)
+                )
+        );
+
+        ClientConfiguration configuration = ClientConfiguration
+                .builder()
+                .connectTo("localhost:" + wireMockServer.port())
+                .withPoolSize(1)
+                .useCredentials(credentials)
+                .build();
+
+        AsyncS3Client client = S3ClientFactory.createClient(configuration);
+
+        TestObserver<GetObjectResponse> slowObserver = client
+                .getObject("test", "slow")
+                .test();
+        Awaitility.await().atMost(Duration.FIVE_SECONDS).until(() ->
+                wireMockServer.findAll(getRequestedFor(urlEqualTo("/slow"))).size() == 1);
+
+        // When
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        Completable low = client.getObject("test", "low", RequestPriority.LOW, 0)
+                .doOnSuccess(response -> completed.add("low"))
+                .ignoreElement()
+                .cache();
+        low.subscribe();
+        Completable high = client.getObject("test", "high", RequestPriority.HIGH, 0)
+                .doOnSuccess(response -> completed.add("high"))
+                .ignoreElement();
+
+        // Then
+        high.andThen(low).blockingAwait();
+        assertThat(completed).containsExactly("high", "low");
+        slowObserver.assertComplete();
+
+        client.close();
+    }
+
+    @Test
+    public void shouldFailRequestThatMissedItsDeadline() {
+        // Given
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(get(urlEqualTo("/slow"))
+                .willReturn(
+                        aResponse()
+                                .withFixedDelay(1000)
+                                .withStatus(200)
+                )
+        );
+
+        ClientConfiguration configuration = ClientConfiguration
+                .builder()
+                .connectTo("localhost:" + wireMockServer.port())
+                .withPoolSize(1)
+                .withRetriesEnabled(3)
+                .withRetryBackoff(2000, 2000)
+                .useCredentials(credentials)
+                .build();
+
+        AsyncS3Client client = S3ClientFactory.createClient(configuration);
+
+        TestObserver<GetObjectResponse> slowObserver = client
+                .getObject("test", "slow")
+                .test();
+        Awaitility.await().atMost(Duration.FIVE_SECONDS).until(() ->
+                wireMockServer.findAll(getRequestedFor(urlEqualTo("/slow"))).size() == 1);
+
+        // When
+        TestObserver<ObjectListing> testObserver = client
+                .listObjects("test", "prefix", RequestPriority.HIGH, 100)
+                .test();
+
+        // Then
+        testObserver.awaitTerminalEvent();
+        testObserver.assertError(DeadlineMissedException.class);
+        slowObserver.assertNotTerminated();
+        slowObserver.awaitTerminalEvent();
+
+        client.close();
+    }
+
     @Test(enabled = false)
     public void shouldRetryListingObjectsWhenUsingRequest() {
         // Given
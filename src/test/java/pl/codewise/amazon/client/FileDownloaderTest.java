@@ -0,0 +1,153 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+import io.reactivex.observers.TestObserver;
+import org.testng.annotations.Test;
+import pl.codewise.amazon.client.http.NettyHttpClientTest;
+import pl.codewise.amazon.client.http.TestHttpServer;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileDownloaderTest {
+
+    private static final int PART_SIZE = 1024;
+
+    @Test
+    public void shouldWriteChunksAtPositionRequestingOneChunkAtATime() throws Exception {
+        // Given
+        Path file = Files.createTempFile("rxs3", ".tmp");
+        List<ByteBuf> chunks = Arrays.asList(chunk("abc"), chunk("def"), chunk("gh"));
+        List<Long> requests = new ArrayList<>();
+
+        // When
+        long written;
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE)) {
+            written = FileDownloader.write(Flowable.fromIterable(chunks).doOnRequest(requests::add), channel, 2)
+                    .blockingGet();
+        }
+
+        // Then
+        assertThat(written).isEqualTo(8);
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).isEqualTo("\0\0abcdefgh");
+        assertThat(requests).containsOnly(1L);
+        assertReleased(chunks);
+
+        Files.delete(file);
+    }
+
+    @Test
+    public void shouldReleaseChunksWhenWriteIsCancelled() throws Exception {
+        // Given
+        Path file = Files.createTempFile("rxs3", ".tmp");
+        List<ByteBuf> chunks = Arrays.asList(chunk("abc"), chunk("def"));
+
+        // When
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE)) {
+            FileDownloader.write(Flowable.fromIterable(chunks).concatWith(Flowable.never()), channel, 0)
+                    .test()
+                    .awaitDone(100, TimeUnit.MILLISECONDS)
+                    .dispose();
+        }
+
+        // Then
+        assertReleased(chunks);
+
+        Files.delete(file);
+    }
+
+    @Test
+    public void shouldReleaseConnectionOfFirstRangeWhenLaterRangeFails() throws Exception {
+        // Given
+        Path file = Files.createTempFile("rxs3", ".tmp");
+
+        try (TestHttpServer server = new TestHttpServer(firstRangeOf(3L * PART_SIZE));
+             AsyncS3Client client = client(server)) {
+
+            // When
+            TestObserver<Long> observer = client.getObjectToFile("test", "key", file, PART_SIZE, 2)
+                    .test()
+                    .awaitDone(5, TimeUnit.SECONDS);
+
+            // Then
+            observer.assertError(AmazonS3Exception.class);
+            NettyHttpClientTest.await(() -> client.acquiredConnections() == 0);
+        }
+
+        Files.delete(file);
+    }
+
+    @Test
+    public void shouldReleaseConnectionOfFirstRangeWhenPreallocationFails() throws Exception {
+        // Given
+        Path file = Files.createTempFile("rxs3", ".tmp");
+
+        try (TestHttpServer server = new TestHttpServer(firstRangeOf(Long.MAX_VALUE));
+             AsyncS3Client client = client(server)) {
+
+            // When
+            TestObserver<Long> observer = client.getObjectToFile("test", "key", file, PART_SIZE, 1)
+                    .test()
+                    .awaitDone(5, TimeUnit.SECONDS);
+
+            // Then
+            observer.assertError(IOException.class);
+            NettyHttpClientTest.await(() -> client.acquiredConnections() == 0);
+        }
+
+        Files.delete(file);
+    }
+
+    /**
+     * @return responder failing every range but the first one of object of given length, only the start of the first
+     * range is sent, so that it holds its connection until its content is consumed or cancelled
+     */
+    private static TestHttpServer.Responder firstRangeOf(long length) {
+        return request -> {
+            if (!("bytes=0-" + (PART_SIZE - 1)).equals(request.headers().get(HttpHeaders.Names.RANGE))) {
+                return TestHttpServer.response(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        "<Error><Code>InternalError</Code><Message>We encountered an internal error</Message></Error>");
+            }
+
+            FullHttpResponse response = TestHttpServer.response(HttpResponseStatus.PARTIAL_CONTENT, "abcd");
+            HttpHeaders.setContentLength(response, PART_SIZE);
+            response.headers().set(HttpHeaders.Names.CONTENT_RANGE, "bytes 0-" + (PART_SIZE - 1) + "/" + length);
+            response.headers().set(HttpHeaders.Names.ETAG, "\"etag\"");
+            return response;
+        };
+    }
+
+    private static AsyncS3Client client(TestHttpServer server) {
+        return S3ClientFactory.createClient(ClientConfiguration.builder()
+                .connectTo(server.location())
+                .useCredentials(new BasicAWSCredentials("key", "secret"))
+                .build());
+    }
+
+    private static void assertReleased(List<ByteBuf> chunks) {
+        for (ByteBuf chunk : chunks) {
+            assertThat(chunk.refCnt()).isZero();
+        }
+    }
+
+    private static ByteBuf chunk(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+}
@@ -8,6 +8,7 @@ import io.reactivex.schedulers.TestScheduler;
 import junit.framework.TestCase;
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.testng.annotations.Test;
+import pl.codewise.amazon.client.http.DeadlineMissedException;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -73,7 +74,7 @@ public class GenericS3RetryTransformerTest extends TestCase {
     public void shouldRetryOnAmazonInternalError() {
         // Given
         Object successObject = new Object();
-        Iterator<Object> subscribeActions = Arrays.asList(new AmazonS3Exception("InfernalError, Status Code: 500"), successObject).iterator();
+        Iterator<Object> subscribeActions = Arrays.asList(amazonError(500, "InternalError"), successObject).iterator();
 
         Single<Object> observable = Single.create(subscriber -> {
             Object action = subscribeActions.next();
@@ -99,7 +100,7 @@ public class GenericS3RetryTransformerTest extends TestCase {
     @Test
     public void shouldRetryUpToThreeAmazonInternalErrors() {
         // Given
-        Single<Object> observable = Single.error(new AmazonS3Exception("InfernalError, Status Code: 500"));
+        Single<Object> observable = Single.error(amazonError(500, "InternalError"));
 
         // When
         TestObserver<Object> subscriber = observable
@@ -116,7 +117,7 @@ public class GenericS3RetryTransformerTest extends TestCase {
     public void shouldRetryOnTimeout() {
         // Given
         Object successObject = new Object();
-        Iterator<Object> subscribeActions = Arrays.asList(new AmazonS3Exception("Status Code: 400; Error Code: RequestTimeout"), successObject).iterator();
+        Iterator<Object> subscribeActions = Arrays.asList(amazonError(400, "RequestTimeout"), successObject).iterator();
 
         Single<Object> observable = Single.create(subscriber -> {
             Object action = subscribeActions.next();
@@ -203,7 +204,7 @@ public class GenericS3RetryTransformerTest extends TestCase {
     public void shouldNotRetryOtherAmazonErrors() {
         // Given
         Object successObject = new Object();
-        Iterator<Object> subscribeActions = Arrays.asList(new AmazonS3Exception("Access Denied"), successObject).iterator();
+        Iterator<Object> subscribeActions = Arrays.asList(amazonError(403, "AccessDenied"), successObject).iterator();
 
         Single<Object> observable = Single.create(subscriber -> {
             Object action = subscribeActions.next();
@@ -253,17 +254,37 @@ public class GenericS3RetryTransformerTest extends TestCase {
         subscriber.assertError(ReflectiveOperationException.class);
     }
 
+    @Test
+    public void shouldNotRetryMissedDeadline() {
+        // Given
+        MutableInt attempts = new MutableInt();
+        Single<Object> observable = Single.create(subscriber -> {
+            attempts.increment();
+            subscriber.onError(new DeadlineMissedException("missed"));
+        });
+
+        // When
+        TestObserver<Object> subscriber = observable
+                .compose(GenericS3RetryTransformer.forRetries(MAX_RETRIES, scheduler))
+                .test();
+
+        // Then
+        scheduler.advanceTimeBy(100, TimeUnit.SECONDS);
+        subscriber.assertError(DeadlineMissedException.class);
+        assertThat(attempts.intValue()).isEqualTo(1);
+    }
+
     @Test
     public void shouldWaitBeforeRetrying() {
         // Given
         TestScheduler testScheduler = new TestScheduler();
 
-        AmazonS3Exception lastError = new AmazonS3Exception("InfernalError, Status Code: 500");
+        AmazonS3Exception lastError = amazonError(500, "InternalError");
 
         List<Object> expectedErrors = Arrays.asList(
-                new AmazonS3Exception("Status Code: 400; Error Code: RequestTimeout"),
-                new AmazonS3Exception("InfernalError, Status Code: 500"),
-                new AmazonS3Exception("InfernalError, Status Code: 500"),
+                amazonError(400, "RequestTimeout"),
+                amazonError(500, "InternalError"),
+                amazonError(500, "InternalError"),
                 lastError
         );
 
@@ -279,7 +300,7 @@ public class GenericS3RetryTransformerTest extends TestCase {
 
         // When
         TestObserver<Object> subscriber = observable
-                .compose(GenericS3RetryTransformer.forRetries(MAX_RETRIES, testScheduler))
+                .compose(GenericS3RetryTransformer.forPolicy(new RetryPolicy(MAX_RETRIES, 1000, 1000, 0), testScheduler))
                 .test();
 
         // Then
@@ -291,12 +312,93 @@ public class GenericS3RetryTransformerTest extends TestCase {
         subscriber.assertNoErrors();
         assertThat(errorIndex.intValue()).isEqualTo(2);
 
-        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS);
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
         subscriber.assertNoErrors();
         assertThat(errorIndex.intValue()).isEqualTo(3);
 
-        testScheduler.advanceTimeBy(3, TimeUnit.SECONDS);
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
         assertThat(errorIndex.intValue()).isEqualTo(4);
         subscriber.assertError(lastError);
     }
+
+    @Test
+    public void shouldWaitRandomDelayBetweenBaseAndThreeTimesPreviousDelay() {
+        // Given
+        TestScheduler testScheduler = new TestScheduler();
+
+        MutableInt attempts = new MutableInt();
+        Single<Object> observable = Single.create(subscriber -> {
+            attempts.increment();
+            subscriber.onError(amazonError(503, "SlowDown"));
+        });
+
+        // When
+        TestObserver<Object> subscriber = observable
+                .compose(GenericS3RetryTransformer.forPolicy(new RetryPolicy(1, 100, 10_000, 0), testScheduler))
+                .test();
+
+        // Then
+        testScheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+        assertThat(attempts.intValue()).isEqualTo(1);
+
+        testScheduler.advanceTimeBy(201, TimeUnit.MILLISECONDS);
+        assertThat(attempts.intValue()).isEqualTo(2);
+        subscriber.assertError(AmazonS3Exception.class);
+    }
+
+    @Test
+    public void shouldNotRetryBasedOnMessageText() {
+        // Given
+        MutableInt attempts = new MutableInt();
+        Single<Object> observable = Single.create(subscriber -> {
+            attempts.increment();
+            subscriber.onError(amazonError(400, "InvalidArgument", "Status Code: 500, Slow Down"));
+        });
+
+        // When
+        TestObserver<Object> subscriber = observable
+                .compose(GenericS3RetryTransformer.forRetries(MAX_RETRIES, scheduler))
+                .test();
+
+        // Then
+        scheduler.advanceTimeBy(100, TimeUnit.SECONDS);
+        subscriber.assertError(AmazonS3Exception.class);
+        assertThat(attempts.intValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldStopRetryingWhenBudgetIsExhausted() {
+        // Given
+        int requests = 200;
+        RetryPolicy retryPolicy = new RetryPolicy(1, 1, 1, 0.01);
+
+        MutableInt attempts = new MutableInt();
+        Single<Object> observable = Single.create(subscriber -> {
+            attempts.increment();
+            subscriber.onError(amazonError(500, "InternalError"));
+        });
+
+        // When
+        for (int i = 0; i < requests; i++) {
+            observable
+                    .compose(GenericS3RetryTransformer.forPolicy(retryPolicy, scheduler))
+                    .test();
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        }
+
+        // Then
+        assertThat(attempts.intValue()).isLessThanOrEqualTo(requests + 100 + 2);
+        assertThat(attempts.intValue()).isGreaterThanOrEqualTo(requests + 100);
+    }
+
+    private static AmazonS3Exception amazonError(int statusCode, String errorCode) {
+        return amazonError(statusCode, errorCode, errorCode);
+    }
+
+    private static AmazonS3Exception amazonError(int statusCode, String errorCode, String message) {
+        AmazonS3Exception exception = new AmazonS3Exception(message);
+        exception.setStatusCode(statusCode);
+        exception.setErrorCode(errorCode);
+        return exception;
+    }
 }
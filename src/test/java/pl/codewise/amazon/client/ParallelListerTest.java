@@ -0,0 +1,67 @@
+package pl.codewise.amazon.client;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelListerTest {
+
+    @Test
+    public void shouldSampleSplitPointsWhereKeysOfFirstPageDiverge() {
+        // Given
+        List<S3ObjectSummary> firstPage = summaries(
+                "logs/2014/05/01/a",
+                "logs/2014/05/02/b",
+                "logs/2014/05/17/c");
+        String lastKey = "logs/2014/05/17/c";
+
+        // When
+        List<String> splitPoints = ParallelLister.sampleSplitPoints("logs/", lastKey, firstPage, 3);
+
+        // Then
+        assertThat(splitPoints).hasSize(3);
+        for (String splitPoint : splitPoints) {
+            assertThat(splitPoint).startsWith("logs/2014/05/").hasSize("logs/2014/05/".length() + 2);
+            assertThat(ParallelLister.compareKeys(splitPoint, lastKey)).isPositive();
+        }
+        assertThat(splitPoints).isSortedAccordingTo(ParallelLister::compareKeys);
+    }
+
+    @Test
+    public void shouldSampleSplitPointsRightAfterPrefixWhenKeysDivergeThere() {
+        // Given
+        List<S3ObjectSummary> firstPage = summaries("a1", "b2", "c3");
+
+        // When
+        List<String> splitPoints = ParallelLister.sampleSplitPoints(null, "c3", firstPage, 2);
+
+        // Then
+        assertThat(splitPoints).containsExactly("ca", "cb");
+    }
+
+    @Test
+    public void shouldNotSampleSplitPointsFromSingleKey() {
+        // Given
+        List<S3ObjectSummary> firstPage = summaries("logs/2014/05/01/a");
+
+        // When
+        List<String> splitPoints = ParallelLister.sampleSplitPoints("logs/", "logs/2014/05/01/a", firstPage, 3);
+
+        // Then
+        assertThat(splitPoints).isEmpty();
+    }
+
+    private static List<S3ObjectSummary> summaries(String... keys) {
+        List<S3ObjectSummary> summaries = new ArrayList<>();
+        for (String key : keys) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(key);
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,116 @@
+package pl.codewise.amazon.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import org.apache.commons.lang3.mutable.MutableInt;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestHedgerTest {
+
+    private final TestScheduler scheduler = new TestScheduler();
+
+    @Test
+    public void shouldEstimatePercentileOnceEnoughLatenciesWereRecorded() {
+        // Given
+        LatencyTracker tracker = new LatencyTracker(90);
+
+        // When
+        for (int i = 1; i < LatencyTracker.RECOMPUTE_INTERVAL; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        long beforeRecompute = tracker.percentileNanos();
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(LatencyTracker.RECOMPUTE_INTERVAL));
+
+        // Then
+        assertThat(beforeRecompute).isEqualTo(-1);
+        assertThat(tracker.percentileNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(58));
+    }
+
+    @Test
+    public void shouldHedgeAtTrackedPercentileOfLatencies() {
+        // Given
+        RequestHedger hedger = new RequestHedger(1000, 90, 1, scheduler, () -> scheduler.now(TimeUnit.NANOSECONDS));
+        for (int i = 1; i <= LatencyTracker.RECOMPUTE_INTERVAL; i++) {
+            hedger.hedge(Single.just(i).delay(i, TimeUnit.MILLISECONDS, scheduler), response -> {
+            }).test();
+            scheduler.advanceTimeBy(i, TimeUnit.MILLISECONDS);
+        }
+
+        MutableInt attempts = new MutableInt();
+        Single<Object> request = Single.never().doOnSubscribe(disposable -> attempts.increment());
+
+        // When
+        TestObserver<Object> observer = hedger.hedge(request, response -> {
+        }).test();
+        scheduler.advanceTimeBy(57, TimeUnit.MILLISECONDS);
+        int attemptsBeforePercentile = attempts.intValue();
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(attemptsBeforePercentile).isEqualTo(1);
+        assertThat(attempts.intValue()).isEqualTo(2);
+        observer.assertNotTerminated();
+    }
+
+    @Test
+    public void shouldDisposeCopyThatLost() {
+        // Given
+        RequestHedger hedger = new RequestHedger(100, 0, 1, scheduler);
+        AtomicBoolean firstDisposed = new AtomicBoolean();
+        List<Single<String>> copies = new ArrayList<>();
+        copies.add(Single.<String>never().doOnDispose(() -> firstDisposed.set(true)));
+        copies.add(Single.just("hedge"));
+        Single<String> request = Single.defer(() -> copies.remove(0));
+
+        // When
+        TestObserver<String> observer = hedger.hedge(request, response -> {
+        }).test();
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        // Then
+        observer.assertValue("hedge");
+        assertThat(firstDisposed.get()).isTrue();
+    }
+
+    @Test
+    public void shouldDiscardAndReleaseResponseOfCopyThatLost() {
+        // Given
+        RequestHedger hedger = new RequestHedger(100, 0, 1, scheduler);
+        List<SingleObserver<? super ByteBuf>> copies = new ArrayList<>();
+        Single<ByteBuf> request = new Single<ByteBuf>() {
+            @Override
+            protected void subscribeActual(SingleObserver<? super ByteBuf> observer) {
+                observer.onSubscribe(Disposables.empty());
+                copies.add(observer);
+            }
+        };
+        ByteBuf winner = Unpooled.copiedBuffer(new byte[]{1});
+        ByteBuf loser = Unpooled.copiedBuffer(new byte[]{2});
+
+        TestObserver<ByteBuf> observer = hedger.hedge(request, ReferenceCountUtil::release).test();
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        // When
+        copies.get(1).onSuccess(winner);
+        copies.get(0).onSuccess(loser);
+
+        // Then
+        assertThat(copies).hasSize(2);
+        observer.assertValue(winner);
+        assertThat(winner.refCnt()).isEqualTo(1);
+        assertThat(loser.refCnt()).isZero();
+    }
+}
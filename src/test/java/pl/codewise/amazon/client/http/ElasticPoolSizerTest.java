@@ -0,0 +1,190 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.TestScheduler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ElasticPoolSizerTest {
+
+    private static final long NO_GROWTH_ON_WAIT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long SHRINK_DELAY_MILLIS = 1000;
+
+    private final EventExecutorGroup executor = new DefaultEventExecutorGroup(1);
+    private final AtomicLong clock = new AtomicLong();
+
+    @AfterClass
+    public void shutDownExecutor() {
+        executor.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldGrowLimitByPendingAcquires() {
+        // Given
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        ElasticPoolSizer sizer = poolSizer(limiter, 2, 10);
+        acquire(limiter, 2);
+        List<Future<Void>> pending = acquire(limiter, 3);
+
+        // When
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(5);
+        assertThat(limiter.pendingAcquires()).isZero();
+        for (Future<Void> acquire : pending) {
+            assertThat(acquire.isSuccess()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldNotGrowWhenFewAcquiresArePending() {
+        // Given
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        ElasticPoolSizer sizer = poolSizer(limiter, 2, 10);
+        acquire(limiter, 4);
+
+        // When
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(limiter.pendingAcquires()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotGrowAboveMaxConnections() {
+        // Given
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        ElasticPoolSizer sizer = poolSizer(limiter, 2, 4);
+        acquire(limiter, 8);
+
+        // When
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(limiter.pendingAcquires()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldShrinkToPeakAfterShrinkDelay() {
+        // Given
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        ElasticPoolSizer sizer = poolSizer(limiter, 2, 10);
+        acquire(limiter, 8);
+        sizer.run();
+        releaseAll(limiter, 5);
+
+        // When
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(SHRINK_DELAY_MILLIS));
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(8);
+
+        // When
+        acquire(limiter, 1);
+        limiter.release();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(SHRINK_DELAY_MILLIS) - 1);
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(8);
+
+        // When
+        clock.incrementAndGet();
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldNotShrinkBelowMinConnections() {
+        // Given
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        ElasticPoolSizer sizer = poolSizer(limiter, 2, 10);
+        acquire(limiter, 8);
+        sizer.run();
+        releaseAll(limiter, 8);
+
+        // When
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(SHRINK_DELAY_MILLIS));
+        sizer.run();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(SHRINK_DELAY_MILLIS));
+        sizer.run();
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldGrowAsSoonAsTooManyAcquiresWait() {
+        // Given
+        TestScheduler scheduler = new TestScheduler();
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        Disposable checks = poolSizer(limiter, 2, 10).start(scheduler);
+        acquire(limiter, 4);
+
+        // When
+        scheduler.triggerActions();
+        int limitWhenFewAcquiresWait = limiter.limit();
+        acquire(limiter, 1);
+        scheduler.triggerActions();
+
+        // Then
+        assertThat(limitWhenFewAcquiresWait).isEqualTo(2);
+        assertThat(limiter.limit()).isEqualTo(5);
+        assertThat(limiter.pendingAcquires()).isZero();
+
+        checks.dispose();
+    }
+
+    @Test
+    public void shouldStopCheckingWhenDisposed() {
+        // Given
+        TestScheduler scheduler = new TestScheduler();
+        ConnectionLimiter limiter = new ConnectionLimiter(2, 100, 60_000);
+        Disposable checks = poolSizer(limiter, 2, 10).start(scheduler);
+        acquire(limiter, 2);
+
+        // When
+        checks.dispose();
+        acquire(limiter, 8);
+        scheduler.advanceTimeBy(ElasticPoolSizer.CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(limiter.limit()).isEqualTo(2);
+        assertThat(limiter.pendingAcquires()).isEqualTo(8);
+    }
+
+    private ElasticPoolSizer poolSizer(ConnectionLimiter limiter, int minConnections, int maxConnections) {
+        return new ElasticPoolSizer(limiter, minConnections, maxConnections, 2, NO_GROWTH_ON_WAIT_MILLIS,
+                SHRINK_DELAY_MILLIS, clock::get);
+    }
+
+    private List<Future<Void>> acquire(ConnectionLimiter limiter, int count) {
+        List<Future<Void>> acquires = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            acquires.add(limiter.acquire(executor.next()));
+        }
+        return acquires;
+    }
+
+    private static void releaseAll(ConnectionLimiter limiter, int count) {
+        for (int i = 0; i < count; i++) {
+            limiter.release();
+        }
+    }
+}
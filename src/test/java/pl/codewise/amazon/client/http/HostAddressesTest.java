@@ -0,0 +1,164 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.reactivex.schedulers.Schedulers;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HostAddressesTest {
+
+    private static final int PORT = 80;
+
+    private final InetAddress first = address(1);
+    private final InetAddress second = address(2);
+    private final InetAddress third = address(3);
+
+    @Test
+    public void shouldResolveHostOnScheduler() throws Exception {
+        // Given
+        AtomicReference<Thread> resolvingThread = new AtomicReference<>();
+        HostAddresses addresses = new HostAddresses("s3.amazonaws.com", PORT, host -> {
+            resolvingThread.set(Thread.currentThread());
+            return new InetAddress[]{first};
+        }, Schedulers.io(), System::nanoTime);
+
+        // When
+        addresses.resolved().blockingAwait(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(resolvingThread.get()).isNotSameAs(Thread.currentThread());
+        assertThat(addresses.nextAddress()).isEqualTo(new InetSocketAddress(first, PORT));
+    }
+
+    @Test
+    public void shouldResolveAgainAfterFailedResolution() {
+        // Given
+        List<InetAddress[]> results = new ArrayList<>();
+        results.add(null);
+        results.add(new InetAddress[]{first});
+        HostAddresses addresses = new HostAddresses("s3.amazonaws.com", PORT, host -> {
+            InetAddress[] result = results.remove(0);
+            if (result == null) {
+                throw new UnknownHostException(host);
+            }
+            return result;
+        }, Schedulers.trampoline(), System::nanoTime);
+
+        // When
+        SocketAddress unresolved = addresses.nextAddress();
+        addresses.resolved().blockingAwait();
+
+        // Then
+        assertThat(((InetSocketAddress) unresolved).isUnresolved()).isTrue();
+        assertThat(addresses.nextAddress()).isEqualTo(new InetSocketAddress(first, PORT));
+    }
+
+    @Test
+    public void shouldConnectToLeastConnectedAddress() {
+        // Given
+        HostAddresses addresses = hostAddresses(new AtomicLong(), first, second, third);
+        addresses.connected(channel(first));
+        addresses.connected(channel(first));
+        addresses.connected(channel(second));
+        Channel thirdChannel = channel(third);
+        addresses.connected(thirdChannel);
+
+        // When
+        thirdChannel.close();
+
+        // Then
+        assertThat(addresses.nextAddress()).isEqualTo(new InetSocketAddress(third, PORT));
+    }
+
+    @Test
+    public void shouldAvoidFailedAddressForTenSeconds() {
+        // Given
+        AtomicLong clock = new AtomicLong();
+        HostAddresses addresses = hostAddresses(clock, first, second);
+        addresses.connected(channel(second));
+        addresses.connectFailed(new InetSocketAddress(first, PORT));
+
+        // When
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10) - 1);
+        SocketAddress duringBackoff = addresses.nextAddress();
+        clock.incrementAndGet();
+        SocketAddress afterBackoff = addresses.nextAddress();
+
+        // Then
+        assertThat(duringBackoff).isEqualTo(new InetSocketAddress(second, PORT));
+        assertThat(afterBackoff).isEqualTo(new InetSocketAddress(first, PORT));
+    }
+
+    @Test
+    public void shouldRetireConnectionsToAddressesNoLongerResolved() {
+        // Given
+        AtomicReference<InetAddress[]> resolved = new AtomicReference<>(new InetAddress[]{first, second});
+        HostAddresses addresses = new HostAddresses("s3.amazonaws.com", PORT, host -> resolved.get(),
+                Schedulers.trampoline(), System::nanoTime);
+        Channel firstChannel = channel(first);
+        Channel secondChannel = channel(second);
+        addresses.connected(firstChannel);
+        addresses.connected(secondChannel);
+
+        // When
+        resolved.set(new InetAddress[]{second, third});
+        addresses.refresh();
+
+        // Then
+        assertThat(addresses.isCurrent(firstChannel)).isFalse();
+        assertThat(addresses.isCurrent(secondChannel)).isTrue();
+        assertThat(addresses.nextAddress()).isEqualTo(new InetSocketAddress(third, PORT));
+    }
+
+    @Test
+    public void shouldKeepAddressesWhenRefreshFails() {
+        // Given
+        AtomicReference<InetAddress[]> resolved = new AtomicReference<>(new InetAddress[]{first});
+        HostAddresses addresses = new HostAddresses("s3.amazonaws.com", PORT, host -> {
+            if (resolved.get() == null) {
+                throw new UnknownHostException(host);
+            }
+            return resolved.get();
+        }, Schedulers.trampoline(), System::nanoTime);
+
+        // When
+        resolved.set(null);
+        addresses.refresh();
+
+        // Then
+        assertThat(addresses.nextAddress()).isEqualTo(new InetSocketAddress(first, PORT));
+    }
+
+    private static HostAddresses hostAddresses(AtomicLong clock, InetAddress... resolved) {
+        return new HostAddresses("s3.amazonaws.com", PORT, host -> resolved, Schedulers.trampoline(), clock::get);
+    }
+
+    private static Channel channel(InetAddress address) {
+        return new EmbeddedChannel() {
+            @Override
+            public SocketAddress remoteAddress() {
+                return new InetSocketAddress(address, PORT);
+            }
+        };
+    }
+
+    private static InetAddress address(int lastByte) {
+        try {
+            return InetAddress.getByAddress("s3.amazonaws.com", new byte[]{52, (byte) 216, 0, (byte) lastByte});
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
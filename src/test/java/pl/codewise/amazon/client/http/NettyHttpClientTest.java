@@ -0,0 +1,213 @@
+package pl.codewise.amazon.client.http;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import io.netty.channel.epoll.Epoll;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+import pl.codewise.amazon.client.AsyncS3Client;
+import pl.codewise.amazon.client.ClientConfiguration;
+import pl.codewise.amazon.client.GetObjectResponse;
+import pl.codewise.amazon.client.GenericS3RetryTransformer;
+import pl.codewise.amazon.client.RetryPolicy;
+import pl.codewise.amazon.client.S3ClientFactory;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NettyHttpClientTest {
+
+    @Test
+    public void shouldUseNativeTransportWhenAvailable() {
+        if (!Epoll.isAvailable()) {
+            throw new SkipException("Native transport cannot be loaded on this host: " + Epoll.unavailabilityCause());
+        }
+
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder().build();
+
+        // When
+        try (NettyHttpClient client = new NettyHttpClient(configuration)) {
+
+            // Then
+            assertThat(client.isNativeTransport()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldFallBackToNioTransportWhenNativeTransportIsUnavailable() {
+        if (Epoll.isAvailable()) {
+            throw new SkipException("Native transport is available on this host");
+        }
+
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder().build();
+
+        // When
+        try (NettyHttpClient client = new NettyHttpClient(configuration)) {
+
+            // Then
+            assertThat(client.isNativeTransport()).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldUseNioTransportWhenNativeTransportIsDisabled() {
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder()
+                .disableNativeTransport()
+                .build();
+
+        // When
+        try (NettyHttpClient client = new NettyHttpClient(configuration)) {
+
+            // Then
+            assertThat(client.isNativeTransport()).isFalse();
+        }
+    }
+
+    @Test
+    public void shouldNotOpenMoreConnectionsThanSharedLimitAcrossBuckets() throws Exception {
+        // Given
+        try (TestHttpServer server = new TestHttpServer().withDelay(500);
+             AsyncS3Client client = S3ClientFactory.createClient(ClientConfiguration.builder()
+                     .connectTo(server.location())
+                     .useCredentials(new BasicAWSCredentials("key", "secret"))
+                     .withPoolSize(1)
+                     .withPoolSizePerBucket(1)
+                     .build())) {
+
+            // When
+            TestObserver<Void> first = client.deleteObject("first-bucket", "key").test();
+            TestObserver<Void> second = client.deleteObject("second-bucket", "key").test();
+            await(() -> server.requestUris().size() == 1);
+            Thread.sleep(100);
+
+            // Then
+            assertThat(server.openConnections()).isEqualTo(1);
+            assertThat(server.requestUris()).hasSize(1);
+
+            first.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+            second.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+            await(() -> server.openConnections() == 1);
+            assertThat(server.acceptedConnections()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void shouldProbeEveryWarmedConnection() {
+        // Given
+        try (TestHttpServer server = new TestHttpServer(request -> TestHttpServer.response(HttpResponseStatus.OK,
+                "<ListBucketResult><Name>bucket</Name><MaxKeys>0</MaxKeys><IsTruncated>false</IsTruncated></ListBucketResult>"));
+             AsyncS3Client client = S3ClientFactory.createClient(ClientConfiguration.builder()
+                     .connectTo(server.location())
+                     .useCredentials(new BasicAWSCredentials("key", "secret"))
+                     .withPoolSize(4)
+                     .build())) {
+
+            // When
+            client.warmUpAndProbe("bucket", 3).blockingAwait(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(server.acceptedConnections()).isEqualTo(3);
+            assertThat(server.requestUris()).hasSize(3);
+            for (String uri : server.requestUris()) {
+                assertThat(uri).contains("max-keys=0");
+            }
+            assertThat(new HashSet<>(server.requestConnections())).hasSize(3);
+            assertThat(server.openConnections()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void shouldRunRetryTimersOnEventLoops() {
+        // Given
+        List<Thread> attemptThreads = new CopyOnWriteArrayList<>();
+        Single<Object> request = Single.create(emitter -> {
+            attemptThreads.add(Thread.currentThread());
+            emitter.onError(new IOException("Connection reset"));
+        });
+
+        try (NettyHttpClient client = new NettyHttpClient(ClientConfiguration.builder().build())) {
+
+            // When
+            request.compose(GenericS3RetryTransformer.forPolicy(new RetryPolicy(2, 10, 10, 0), client.scheduler()))
+                    .test()
+                    .awaitDone(5, TimeUnit.SECONDS)
+                    .assertError(IOException.class);
+
+            // Then
+            assertThat(attemptThreads).hasSize(3);
+            assertThat(attemptThreads.get(0)).isSameAs(Thread.currentThread());
+            for (Thread thread : attemptThreads.subList(1, 3)) {
+                assertThat(thread.getName()).startsWith("RxS3-client-worker");
+            }
+        }
+    }
+
+    @Test
+    public void shouldFailRequestThatWouldMissDeadlineWaitingForPrefixRateLimit() throws Exception {
+        // Given
+        try (TestHttpServer server = new TestHttpServer();
+             AsyncS3Client client = S3ClientFactory.createClient(ClientConfiguration.builder()
+                     .connectTo(server.location())
+                     .useCredentials(new BasicAWSCredentials("key", "secret"))
+                     .enablePrefixRateLimit()
+                     .withPrefixRateLimits(1, 1)
+                     .build())) {
+            client.getObject("test", "prefix/first").blockingGet().getContent().close();
+
+            // When
+            TestObserver<GetObjectResponse> observer = client.getObject("test", "prefix/second", RequestPriority.NORMAL, 100)
+                    .test()
+                    .awaitDone(5, TimeUnit.SECONDS);
+            long start = System.nanoTime();
+            client.getObject("test", "prefix/third").blockingGet().getContent().close();
+
+            // Then
+            observer.assertError(DeadlineMissedException.class);
+            assertThat(server.requestUris()).containsExactly("/prefix%2Ffirst", "/prefix%2Fthird");
+            // Third request waits only for the token taken by the first one
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(1500));
+        }
+    }
+
+    @Test
+    public void shouldRateLimitMultipartRequestsByKey() {
+        // Given
+        try (TestHttpServer server = new TestHttpServer();
+             AsyncS3Client client = S3ClientFactory.createClient(ClientConfiguration.builder()
+                     .connectTo(server.location())
+                     .useCredentials(new BasicAWSCredentials("key", "secret"))
+                     .enablePrefixRateLimit()
+                     .withPrefixRateLimits(100, 1)
+                     .build())) {
+
+            // When
+            long start = System.nanoTime();
+            client.abortMultipartUpload("test", "prefix/key", "first")
+                    .mergeWith(client.abortMultipartUpload("test", "prefix/key", "second"))
+                    .blockingAwait(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(server.requestUris()).hasSize(2);
+            assertThat(System.nanoTime() - start).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(800));
+        }
+    }
+
+    public static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
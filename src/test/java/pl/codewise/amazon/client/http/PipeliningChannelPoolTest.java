@@ -0,0 +1,120 @@
+package pl.codewise.amazon.client.http;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.observers.TestObserver;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+import pl.codewise.amazon.client.AsyncS3Client;
+import pl.codewise.amazon.client.ClientConfiguration;
+import pl.codewise.amazon.client.GetObjectResponse;
+import pl.codewise.amazon.client.S3ClientFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pl.codewise.amazon.client.http.NettyHttpClientTest.await;
+
+public class PipeliningChannelPoolTest {
+
+    /**
+     * Requests are pipelined on a connection that already has a request in flight, so every test waits for the first
+     * request to reach the server before sending the others.
+     */
+    @Test
+    public void shouldMatchPipelinedResponsesToRequestsInOrder() throws Exception {
+        // Given
+        try (TestHttpServer server = new TestHttpServer(request -> TestHttpServer.response(HttpResponseStatus.OK, request.getUri()))
+                .withDelay(200);
+             AsyncS3Client client = pipeliningClient(server)) {
+
+            // When
+            TestObserver<GetObjectResponse> first = client.getObject("bucket", "first").test();
+            await(() -> server.requestUris().size() == 1);
+            TestObserver<GetObjectResponse> second = client.getObject("bucket", "second").test();
+            TestObserver<GetObjectResponse> third = client.getObject("bucket", "third").test();
+
+            // Then
+            await(() -> server.requestUris().size() == 3);
+            first.assertNotTerminated();
+
+            assertThat(content(first)).isEqualTo("/first");
+            assertThat(content(second)).isEqualTo("/second");
+            assertThat(content(third)).isEqualTo("/third");
+            assertThat(server.acceptedConnections()).isEqualTo(1);
+            assertThat(new HashSet<>(server.requestConnections())).hasSize(1);
+        }
+    }
+
+    @Test
+    public void shouldFailEveryQueuedRequestWhenConnectionFailsMidPipeline() throws Exception {
+        // Given
+        try (TestHttpServer server = new TestHttpServer(request -> request.getUri().equals("/third")
+                ? null
+                : TestHttpServer.response(HttpResponseStatus.OK, request.getUri()))
+                .withDelay(200);
+             AsyncS3Client client = pipeliningClient(server)) {
+
+            // When
+            TestObserver<GetObjectResponse> first = client.getObject("bucket", "first").test();
+            await(() -> server.requestUris().size() == 1);
+            TestObserver<GetObjectResponse> second = client.getObject("bucket", "second").test();
+            TestObserver<GetObjectResponse> third = client.getObject("bucket", "third").test();
+
+            // Then
+            first.awaitDone(5, TimeUnit.SECONDS).assertNoValues().assertError(IOException.class);
+            second.awaitDone(5, TimeUnit.SECONDS).assertNoValues().assertError(IOException.class);
+            third.awaitDone(5, TimeUnit.SECONDS).assertNoValues().assertError(IOException.class);
+            assertThat(client.acquiredConnections()).isZero();
+        }
+    }
+
+    @Test
+    public void shouldKeepConnectionWhenPipelinedRequestIsDisposed() throws Exception {
+        // Given
+        try (TestHttpServer server = new TestHttpServer(request -> TestHttpServer.response(HttpResponseStatus.OK, request.getUri()))
+                .withDelay(200);
+             AsyncS3Client client = pipeliningClient(server)) {
+
+            TestObserver<GetObjectResponse> first = client.getObject("bucket", "first").test();
+            await(() -> server.requestUris().size() == 1);
+            TestObserver<GetObjectResponse> second = client.getObject("bucket", "second").test();
+            TestObserver<GetObjectResponse> third = client.getObject("bucket", "third").test();
+            await(() -> server.requestUris().size() == 3);
+
+            // When
+            second.dispose();
+
+            // Then
+            assertThat(content(first)).isEqualTo("/first");
+            assertThat(content(third)).isEqualTo("/third");
+            second.assertNoValues().assertNoErrors();
+
+            assertThat(content(client.getObject("bucket", "fourth").test())).isEqualTo("/fourth");
+            assertThat(server.acceptedConnections()).isEqualTo(1);
+            assertThat(client.acquiredConnections()).isZero();
+        }
+    }
+
+    private static AsyncS3Client pipeliningClient(TestHttpServer server) {
+        return S3ClientFactory.createClient(ClientConfiguration.builder()
+                .connectTo(server.location())
+                .useCredentials(new BasicAWSCredentials("key", "secret"))
+                .withPoolSize(1)
+                .enablePipelining(3)
+                .build());
+    }
+
+    private static String content(TestObserver<GetObjectResponse> observer) throws IOException {
+        observer.awaitDone(5, TimeUnit.SECONDS).assertNoErrors().assertValueCount(1);
+        GetObjectResponse response = observer.values().get(0);
+        try {
+            return IOUtils.toString(response.getContent(), StandardCharsets.UTF_8);
+        } finally {
+            response.getContent().close();
+        }
+    }
+}
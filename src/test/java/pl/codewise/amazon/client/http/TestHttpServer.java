@@ -0,0 +1,156 @@
+package pl.codewise.amazon.client.http;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP server for tests of connection handling. Requests are answered in the order they arrive on a connection,
+ * each after the delay of the server, with the response returned by its responder.
+ */
+public class TestHttpServer implements AutoCloseable {
+
+    public interface Responder {
+
+        /**
+         * @return response to send or null to close the connection right away
+         */
+        FullHttpResponse respond(FullHttpRequest request);
+    }
+
+    private final NioEventLoopGroup group = new NioEventLoopGroup(1);
+    private final Channel serverChannel;
+    private final Responder responder;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+    private final List<String> requestUris = new CopyOnWriteArrayList<>();
+    private final List<SocketAddress> requestConnections = new CopyOnWriteArrayList<>();
+
+    private volatile long delayMillis;
+
+    public TestHttpServer() {
+        this(request -> response(HttpResponseStatus.NO_CONTENT, ""));
+    }
+
+    public TestHttpServer(Responder responder) {
+        this.responder = responder;
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(1024 * 1024))
+                                .addLast(new RequestHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0)
+                .syncUninterruptibly()
+                .channel();
+    }
+
+    public static FullHttpResponse response(HttpResponseStatus status, String content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(content, StandardCharsets.UTF_8));
+        HttpHeaders.setContentLength(response, response.content().readableBytes());
+        return response;
+    }
+
+    public String location() {
+        return "localhost:" + ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public TestHttpServer withDelay(long delayMillis) {
+        this.delayMillis = delayMillis;
+        return this;
+    }
+
+    public int openConnections() {
+        return openConnections.get();
+    }
+
+    public int maxOpenConnections() {
+        return maxOpenConnections.get();
+    }
+
+    public int acceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    public List<String> requestUris() {
+        return requestUris;
+    }
+
+    /**
+     * @return client address of the connection of every request, in the order requests arrived
+     */
+    public List<SocketAddress> requestConnections() {
+        return requestConnections;
+    }
+
+    @Override
+    public void close() {
+        serverChannel.close().syncUninterruptibly();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private class RequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            acceptedConnections.incrementAndGet();
+            maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            openConnections.decrementAndGet();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            requestUris.add(request.getUri());
+            requestConnections.add(ctx.channel().remoteAddress());
+            FullHttpResponse response = responder.respond(request);
+            if (response == null) {
+                ctx.close();
+                return;
+            }
+
+            long delay = delayMillis;
+            if (delay > 0) {
+                ctx.executor().schedule(() -> ctx.writeAndFlush(response), delay, TimeUnit.MILLISECONDS);
+            } else {
+                ctx.writeAndFlush(response);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.reactivex.Flowable;
+import io.reactivex.internal.subscriptions.BooleanSubscription;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+import org.reactivestreams.Subscriber;
+import org.testng.annotations.Test;
+import pl.codewise.amazon.client.ClientConfiguration;
+import pl.codewise.amazon.client.ListObjectsStreamResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static pl.codewise.amazon.client.AsyncS3ClientAssertions.assertThat;
+
+public class IncrementalListResponseParserTest {
+
+    private static final String LIST_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix>COUNTRY_BY_DATE/</Prefix><Marker></Marker><MaxKeys>2</MaxKeys>"
+            + "<IsTruncated>true</IsTruncated>"
+            + "<Contents><Key>COUNTRY_BY_DATE/2014/05/PL</Key><LastModified>2014-12-20T23:02:11.123Z</LastModified>"
+            + "<ETag>&quot;d41d8cd98f00b204e9800998ecf8427e&quot;</ETag><Size>123</Size>"
+            + "<StorageClass>STANDARD</StorageClass></Contents>"
+            + "<Contents><Key>COUNTRY_BY_DATE/2014/05/US</Key><LastModified>2014-05-01T10:00:00.000Z</LastModified>"
+            + "<ETag>&quot;x&quot;</ETag><Size>0</Size><StorageClass>STANDARD</StorageClass></Contents>"
+            + "</ListBucketResult>";
+
+    @Test
+    public void shouldEmitSummaryAsSoonAsItsContentsIsClosed() throws Exception {
+        // Given
+        PublishProcessor<ByteBuf> content = PublishProcessor.create();
+        ListObjectsStreamResponse response = new IncrementalListResponseParser(ClientConfiguration.builder().build())
+                .parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content);
+
+        TestSubscriber<S3ObjectSummary> subscriber = response.getObjectSummaries().test();
+        int firstContentsEnd = LIST_RESPONSE.indexOf("</Contents>") + "</Contents>".length();
+
+        // When
+        content.onNext(chunk(0, firstContentsEnd - 5));
+        content.onNext(chunk(firstContentsEnd - 5, firstContentsEnd));
+
+        // Then
+        subscriber.assertValueCount(1).assertNotComplete();
+        assertThat(subscriber.values().get(0).getKey()).isEqualTo("COUNTRY_BY_DATE/2014/05/PL");
+
+        // When
+        content.onNext(chunk(firstContentsEnd, LIST_RESPONSE.length()));
+        content.onComplete();
+
+        // Then
+        subscriber.assertValueCount(2).assertComplete();
+        ObjectListing listing = response.getListing();
+        assertThat(listing.getObjectSummaries()).isEmpty();
+        assertThat(listing.isTruncated()).isTrue();
+        assertThat(listing.getNextMarker()).isEqualTo("COUNTRY_BY_DATE/2014/05/US");
+    }
+
+    @Test
+    public void shouldScanSameSummariesAsScannerOfWholeResponse() throws Exception {
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder().build();
+        PublishProcessor<ByteBuf> content = PublishProcessor.create();
+        ListObjectsStreamResponse response = new IncrementalListResponseParser(configuration)
+                .parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content);
+
+        TestSubscriber<S3ObjectSummary> subscriber = response.getObjectSummaries().test();
+
+        // When
+        for (int i = 0; i < LIST_RESPONSE.length(); i += 7) {
+            content.onNext(chunk(i, Math.min(i + 7, LIST_RESPONSE.length())));
+        }
+        content.onComplete();
+
+        // Then
+        ObjectListing scanned = new ScanningListResponseParser(configuration)
+                .parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, Unpooled.copiedBuffer(LIST_RESPONSE, StandardCharsets.UTF_8));
+        subscriber.assertComplete();
+        assertThat(subscriber.values()).usingFieldByFieldElementComparator().containsExactlyElementsOf(scanned.getObjectSummaries());
+    }
+
+    @Test
+    public void shouldFailWhenResponseEndsBeforeListIsClosed() {
+        // Given
+        PublishProcessor<ByteBuf> content = PublishProcessor.create();
+        ListObjectsStreamResponse response = new IncrementalListResponseParser(ClientConfiguration.builder().build())
+                .parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content);
+
+        TestSubscriber<S3ObjectSummary> subscriber = response.getObjectSummaries().test();
+
+        // When
+        content.onNext(chunk(0, LIST_RESPONSE.length() / 2));
+        content.onComplete();
+
+        // Then
+        subscriber.assertError(IOException.class);
+    }
+
+    @Test
+    public void shouldReleaseChunksWhenSubscriptionIsCancelledMidStream() {
+        // Given
+        AtomicReference<Subscriber<? super ByteBuf>> connection = new AtomicReference<>();
+        Flowable<ByteBuf> content = Flowable.fromPublisher(subscriber -> {
+            subscriber.onSubscribe(new BooleanSubscription());
+            connection.set(subscriber);
+        });
+        ListObjectsStreamResponse response = new IncrementalListResponseParser(ClientConfiguration.builder().build())
+                .parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content);
+
+        TestSubscriber<S3ObjectSummary> subscriber = response.getObjectSummaries().test(1);
+        int lastContentsEnd = LIST_RESPONSE.lastIndexOf("</Contents>") + "</Contents>".length();
+        ByteBuf first = chunk(0, lastContentsEnd);
+        ByteBuf second = chunk(lastContentsEnd, LIST_RESPONSE.length());
+
+        // When
+        connection.get().onNext(first);
+        subscriber.cancel();
+        connection.get().onNext(second);
+
+        // Then
+        subscriber.assertValueCount(1);
+        assertThat(first.refCnt()).isZero();
+        assertThat(second.refCnt()).isZero();
+    }
+
+    private static ByteBuf chunk(int from, int to) {
+        return Unpooled.copiedBuffer(LIST_RESPONSE.substring(from, to), StandardCharsets.UTF_8);
+    }
+}
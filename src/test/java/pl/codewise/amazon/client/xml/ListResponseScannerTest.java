@@ -0,0 +1,103 @@
+package pl.codewise.amazon.client.xml;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.testng.annotations.Test;
+import org.xmlpull.v1.XmlPullParserFactory;
+import pl.codewise.amazon.client.ClientConfiguration;
+
+import java.nio.charset.StandardCharsets;
+
+import static pl.codewise.amazon.client.AsyncS3ClientAssertions.assertThat;
+
+public class ListResponseScannerTest {
+
+    private static final String LIST_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+            + "<Name>bucket</Name><Prefix>COUNTRY_BY_DATE/</Prefix><Marker></Marker><MaxKeys>3</MaxKeys>"
+            + "<Delimiter>/</Delimiter><IsTruncated>true</IsTruncated>"
+            + "<Contents><Key>COUNTRY_BY_DATE/R&amp;D &lt;2014&gt;</Key><LastModified>2014-12-20T23:02:11.123Z</LastModified>"
+            + "<ETag>&quot;d41d8cd98f00b204e9800998ecf8427e&quot;</ETag><Size>1234567890123</Size>"
+            + "<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6caea54ba06a</ID><DisplayName>me</DisplayName></Owner>"
+            + "<StorageClass>STANDARD</StorageClass></Contents>"
+            + "<Contents><Key>COUNTRY_BY_DATE/Zürich&#x0D;&#13;</Key><LastModified>2014-05-01T10:00:00.000Z</LastModified>"
+            + "<ETag>&quot;x&quot;</ETag><Size>0</Size><StorageClass>REDUCED_REDUNDANCY</StorageClass></Contents>"
+            + "<CommonPrefixes><Prefix>COUNTRY_BY_DATE/2014/</Prefix></CommonPrefixes>"
+            + "<CommonPrefixes><Prefix>COUNTRY_BY_DATE/2015/</Prefix></CommonPrefixes>"
+            + "</ListBucketResult>";
+
+    @Test
+    public void shouldScanSameListingAsXmlPullParser() throws Exception {
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder().build();
+
+        // When
+        ObjectListing scanned = new ScanningListResponseParser(configuration).parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content());
+        ObjectListing parsed = xmlPullParser(configuration).parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content());
+
+        // Then
+        assertThat(scanned).isEqualTo(parsed);
+        assertThat(scanned.getObjectSummaries())
+                .extracting("key")
+                .containsExactly("COUNTRY_BY_DATE/R&D <2014>", "COUNTRY_BY_DATE/Zürich\r\r");
+        assertThat(scanned.getNextMarker()).isEqualTo("COUNTRY_BY_DATE/Zürich\r\r");
+    }
+
+    @Test
+    public void shouldSkipSameFieldsAsXmlPullParser() throws Exception {
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder()
+                .skipParsingETag()
+                .skipParsingLasModified()
+                .skipParsingOwner()
+                .skipParsingStorageClass()
+                .build();
+
+        // When
+        ObjectListing scanned = new ScanningListResponseParser(configuration).parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content());
+        ObjectListing parsed = xmlPullParser(configuration).parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content());
+
+        // Then
+        assertThat(scanned).isEqualTo(parsed);
+        S3ObjectSummary summary = scanned.getObjectSummaries().get(0);
+        assertThat(summary.getETag()).isNull();
+        assertThat(summary.getLastModified()).isNull();
+        assertThat(summary.getOwner()).isNull();
+        assertThat(summary.getStorageClass()).isNull();
+    }
+
+    @Test
+    public void shouldResumeScanningWhereBytesRanOut() throws Exception {
+        // Given
+        ClientConfiguration configuration = ClientConfiguration.builder().build();
+        ListResponseScanner scanner = new ScanningListResponseParser(configuration).newScanner();
+
+        byte[] bytes = LIST_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        ByteBuf buffer = Unpooled.buffer(bytes.length);
+
+        // When
+        for (byte value : bytes) {
+            buffer.writeByte(value);
+            scanner.scan(buffer);
+        }
+
+        // Then
+        ObjectListing parsed = xmlPullParser(configuration).parse(HttpResponseStatus.OK, HttpHeaders.EMPTY_HEADERS, content());
+        assertThat(scanner.getListing()).isEqualTo(parsed);
+    }
+
+    private static ByteBuf content() {
+        return Unpooled.copiedBuffer(LIST_RESPONSE, StandardCharsets.UTF_8);
+    }
+
+    private static ListResponseParser xmlPullParser(ClientConfiguration configuration) throws Exception {
+        XmlPullParserFactory pullParserFactory = XmlPullParserFactory.newInstance();
+        pullParserFactory.setNamespaceAware(false);
+
+        return ListResponseParser.newListResponseParser(pullParserFactory, configuration);
+    }
+}